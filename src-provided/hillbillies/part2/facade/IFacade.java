@@ -435,4 +435,32 @@ public interface IFacade extends hillbillies.part1.facade.IFacade {
 	 */
 	public Set<Log> getLogs(World world) throws ModelException;
 
+	/* QUERIES */
+
+	/**
+	 * Return all units, boulders and logs of the given world whose position
+	 * lies in the given box.
+	 * 
+	 * @param world
+	 *            The world from which to retrieve the objects.
+	 * @param minX
+	 *            The smallest x coordinate of the box (inclusive).
+	 * @param minY
+	 *            The smallest y coordinate of the box (inclusive).
+	 * @param minZ
+	 *            The smallest z coordinate of the box (inclusive).
+	 * @param maxX
+	 *            The largest x coordinate of the box (exclusive).
+	 * @param maxY
+	 *            The largest y coordinate of the box (exclusive).
+	 * @param maxZ
+	 *            The largest z coordinate of the box (exclusive).
+	 * @return A set containing the alive units, boulders and logs of the
+	 *         given world in the box.
+	 * @throws ModelException
+	 *             A precondition was violated or an exception was thrown.
+	 */
+	public Set<Object> getObjectsInBox(World world, double minX, double minY, double minZ, double maxX, double maxY,
+			double maxZ) throws ModelException;
+
 }
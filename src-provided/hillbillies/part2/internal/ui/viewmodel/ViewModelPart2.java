@@ -1,7 +1,10 @@
 package hillbillies.part2.internal.ui.viewmodel;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import hillbillies.common.internal.map.IByteMap3D;
 import hillbillies.common.internal.ui.sprites.SpriteFactory;
@@ -62,8 +65,67 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 		depthValues.setValueAt(visibleX, visibleY, value);
 	}
 
+	/**
+	 * The visible objects of each visible tile column, only set while the
+	 * visible objects of the whole view are collected.
+	 */
+	private Matrix<List<Object>> visibleObjectsCache;
+
+	/**
+	 * Returns the visible objects of the whole view, with a single box query
+	 * for the view that is split over the visible tile columns.
+	 */
+	@Override
+	public Set<Object> getVisibleObjects() {
+		visibleObjectsCache = collectVisibleObjects();
+		try {
+			return super.getVisibleObjects();
+		} finally {
+			visibleObjectsCache = null;
+		}
+	}
+
+	private Matrix<List<Object>> collectVisibleObjects() {
+		Matrix<List<Object>> result = new Matrix<>(getNbVisibleTilesX(), getNbVisibleTilesY(), null);
+		int lowestZ = getCurrentZLevel();
+		for (int visibleX = 0; visibleX < getNbVisibleTilesX(); visibleX++) {
+			for (int visibleY = 0; visibleY < getNbVisibleTilesY(); visibleY++) {
+				result.setValueAt(visibleX, visibleY, new ArrayList<>());
+				lowestZ = Math.min(lowestZ, visibleTileToWorldTileZ(visibleX, visibleY));
+			}
+		}
+		Set<?> objects = getWorldInfoProvider().getObjectsInBox(visibleTileToWorldPointX(0),
+				visibleTileToWorldPointY(0), lowestZ * getMeterPerTile(),
+				visibleTileToWorldPointX(getNbVisibleTilesX()), visibleTileToWorldPointY(getNbVisibleTilesY()),
+				(getCurrentZLevel() + 1) * getMeterPerTile());
+		for (Object object : objects) {
+			double[] position = getPositionOf(object);
+			if (position == null)
+				continue;
+			int visibleX = worldTileToVisibleTileX(worldPointToWorldCube(position[0]));
+			int visibleY = worldTileToVisibleTileY(worldPointToWorldCube(position[1]));
+			// objects below the visible cube of their column are hidden.
+			if (result.isValid(visibleX, visibleY)
+					&& position[2] >= visibleTileToWorldTileZ(visibleX, visibleY) * getMeterPerTile())
+				result.getValueAt(visibleX, visibleY).add(object);
+		}
+		return result;
+	}
+
+	private double[] getPositionOf(Object object) {
+		if (object instanceof Unit)
+			return getUnitInfoProvider().getPosition((Unit) object).orElse(null);
+		if (object instanceof Boulder)
+			return getUnitInfoProvider().getPosition((Boulder) object);
+		if (object instanceof Log)
+			return getUnitInfoProvider().getPosition((Log) object);
+		return null;
+	}
+
 	@Override
 	protected Collection<? extends Object> getVisibleObjectsAt(int visibleX, int visibleY) {
+		if (visibleObjectsCache != null)
+			return visibleObjectsCache.getValueAt(visibleX, visibleY);
 		int bottomZ = visibleTileToWorldTileZ(visibleX, visibleY);
 		// get visible objects in z-aligned column on the (visibleX,
 		// visibleY) tile
@@ -3,6 +3,7 @@ package hillbillies.model;
 import be.kuleuven.cs.som.annotate.Basic;
 import hillbillies.model.unit.Unit;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -24,6 +25,10 @@ public class Faction {
      * @invar   The size of the set must be less than or equal to MAX_UNITS.
      */
     private final Set<Unit> units;
+    /**
+     * A read-only live view of the units, handed out by getUnits.
+     */
+    private final Set<Unit> unitsView;
 
     private final Scheduler scheduler;
 
@@ -34,6 +39,7 @@ public class Faction {
      */
     public Faction() {
         this.units = new HashSet<>();
+        this.unitsView = Collections.unmodifiableSet(units);
         this.scheduler = new Scheduler();
     }
 
@@ -63,10 +69,12 @@ public class Faction {
 
     /**
      * Returns all units in the faction.
+     *
+     * @return  A read-only view of the units, which follows the changes of the faction.
      */
     @Basic
     public Set<Unit> getUnits() {
-        return new HashSet<>(units);
+        return unitsView;
     }
 
     /**
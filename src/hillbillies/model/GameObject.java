@@ -72,6 +72,14 @@ public abstract class GameObject {
         return this.position;
     }
 
+    /**
+     * Returns whether the game object is falling.
+     */
+    @Basic
+    boolean isFalling() {
+        return this.falling;
+    }
+
     /**
      * Updates the state of the game object.
      *
@@ -85,9 +93,10 @@ public abstract class GameObject {
         IntVector cubePos = getPosition().toIntVector();
         if (!(cubePos.getZ() == 0 || Terrain.isSolid(getWorld().getTerrain().getCubeType(cubePos.add(0, 0, -1))))
                 || (getPosition().getZ() - Math.floor(getPosition().getZ())) > Terrain.Lc / 2) {
+            if (!falling)
+                getWorld().getTerrain().removeObjectFromCube(this); // remove from terrain but keep in world.
             setPosition(getPosition().add(0, 0, FALL_SPEED * dt));
             falling = true;
-            getWorld().getTerrain().removeObjectFromCube(this); // remove from terrain but keep in world.
         } else {
             if (falling) {
                 setPosition(new Vector(getPosition().getX(), getPosition().getY(), getPosition().toIntVector().getZ() + Terrain.Lc / 2));
@@ -106,6 +115,9 @@ public abstract class GameObject {
      *
      * @post    The new position of the object will be the given position.
      *
+     * @effect  The position is updated in the spatial index of the world.
+     *          | this.getWorld().updatePosition(this)
+     *
      * @throws  InvalidPositionException
      *          The position is not valid or the position is a solid cube.
      */
@@ -114,6 +126,7 @@ public abstract class GameObject {
                 || Terrain.isSolid(getWorld().getTerrain().getCubeType(pos.toIntVector())))
             throw new InvalidPositionException(pos);
         this.position = pos;
+        getWorld().updatePosition(this);
     }
 
     /**
@@ -0,0 +1,126 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.vector.IntVector;
+
+import java.util.Deque;
+
+/**
+ * Class representing a request for a path that is calculated by the world over several time steps.
+ *
+ * @invar   The start and target must be effective.
+ * @invar   A request that isn't done has no path.
+ */
+public class PathRequest {
+
+    private final IntVector start;
+    private final IntVector target;
+
+    private boolean done;
+    private boolean cancelled;
+    private Deque<IntVector> path;
+
+    /**
+     * The number of cubes expanded for this request, over all restarts of the search.
+     */
+    private int expandedNodes;
+
+    /**
+     * Creates a new request for a path from start to target.
+     *
+     * @param   start
+     *          The start position.
+     * @param   target
+     *          The target position.
+     *
+     * @post    The request isn't done.
+     *          | !new.isDone()
+     */
+    PathRequest(IntVector start, IntVector target) {
+        this.start = start;
+        this.target = target;
+    }
+
+    /**
+     * Returns the start position of the requested path.
+     */
+    @Basic @Immutable
+    public IntVector getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the target position of the requested path.
+     */
+    @Basic @Immutable
+    public IntVector getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns whether the path has been calculated or the request was abandoned.
+     */
+    @Basic
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Returns the calculated path.
+     *
+     * @return  The positions of the cubes on the path, the first element is start and the last is target.
+     *          Null if the request isn't done, no path exists or the search exceeded the limit of the world.
+     */
+    @Basic
+    public Deque<IntVector> getPath() {
+        return path;
+    }
+
+    /**
+     * Returns whether the request was cancelled.
+     */
+    @Basic
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancels the request, the world stops calculating the path.
+     *
+     * @post    The request is cancelled.
+     *          | new.isCancelled()
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Completes the request with the given path.
+     *
+     * @param   path
+     *          The calculated path, or null if no path was found.
+     *
+     * @post    The request is done and has the given path.
+     *          | new.isDone() && new.getPath() == path
+     */
+    void complete(Deque<IntVector> path) {
+        this.path = path;
+        this.done = true;
+    }
+
+    /**
+     * Returns the number of cubes expanded for this request.
+     */
+    @Basic
+    int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Adds the given number of cubes to the expanded cubes of this request.
+     */
+    void addExpandedNodes(int nodes) {
+        this.expandedNodes += nodes;
+    }
+}
@@ -6,6 +6,7 @@ import hillbillies.model.util.SortedLinkedList;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.stream.Stream;
 
@@ -129,10 +130,12 @@ public class Scheduler {
 
     /**
      * Returns a list of all tasks this scheduler controls.
+     *
+     * @return  A read-only view of the tasks sorted by priority, which follows the changes of the scheduler.
      */
     @Basic
-    public SortedLinkedList<Task> getAllTasks() {
-        return new SortedLinkedList<>(this.allTasks);
+    public List<Task> getAllTasks() {
+        return this.allTasks.asList();
     }
 
     /**
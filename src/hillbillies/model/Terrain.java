@@ -2,17 +2,17 @@ package hillbillies.model;
 
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Model;
 import be.kuleuven.cs.som.annotate.Raw;
 import hillbillies.model.exceptions.InvalidCubeTypeException;
 import hillbillies.model.exceptions.InvalidPositionException;
+import hillbillies.model.util.BorderConnectivity;
+import hillbillies.model.util.IntList;
 import hillbillies.model.vector.IntVector;
 import hillbillies.part2.listener.TerrainChangeListener;
-import hillbillies.util.ConnectedToBorder;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.function.IntConsumer;
 import java.util.stream.Stream;
 
 
@@ -24,25 +24,6 @@ import java.util.stream.Stream;
  */
 public class Terrain {
 
-    /**
-     * Class representing a cube in the world.
-     */
-    private static class Cube {
-        Cube(Type type) {
-            this.type = type;
-            this.gameObjects = new HashSet<>();
-        }
-        public Type type;
-
-        /**
-         * Set of all GameObject laying on this cube.
-         * @invar The set must be effective.
-         * @invar Each GameObject must be effective.
-         * @invar Each GameObjects position must be this cube.
-         */
-        final Set<GameObject> gameObjects;
-    }
-
     /**
      * Enum representing cube types.
      */
@@ -61,12 +42,20 @@ public class Terrain {
             return this.id;
         }
 
+        /**
+         * All types, indexed by their id.
+         */
+        private static final Type[] byId;
+        static {
+            byId = new Type[Type.values().length];
+            for (Type type : Type.values())
+                byId[type.getId()] = type;
+        }
+
         public static Type fromId(int id) throws InvalidCubeTypeException {
-            for (Type type : Type.values()) {
-                if (type.getId() == id)
-                    return type;
-            }
-            throw new InvalidCubeTypeException(id);
+            if (id < 0 || id >= byId.length)
+                throw new InvalidCubeTypeException(id);
+            return byId[id];
         }
     }
 
@@ -80,16 +69,45 @@ public class Terrain {
     private final int maxZ;
 
     /**
-     * A 3 dimensional array of all cubes in the world.
+     * The type id of each cube in the world, indexed by x + y * maxX + z * maxX * maxY.
      *
      * @invar   The array must be effective.
-     * @invar   Each cube must be effective.
+     * @invar   Each element must be a valid type id.
+     */
+    private final byte[] types;
+
+    /**
+     * The logs and boulders laying on each cube, indexed like types.
+     * Only cubes with logs or boulders on them have an entry in the corresponding map.
+     *
+     * @invar   The maps must be effective.
+     * @invar   Each set must be effective and not empty.
+     * @invar   Each GameObjects position must be the cube of its index.
      */
-    private final Cube[][][] cubes;
+    private final Map<Integer, Set<Log>> logs;
+    private final Map<Integer, Set<Boulder>> boulders;
+
+    /**
+     * The number of solid cubes among the 26 neighbours of each cube, indexed like types.
+     *
+     * @invar   The array must be effective.
+     * @invar   Each element equals the number of solid neighbours within the world of its cube.
+     */
+    private final byte[] solidNeighbours;
+
+    /**
+     * The difference in index between a cube and its neighbour for each neighbour offset.
+     */
+    private final int[] neighbourDeltas;
+
+    /**
+     * The number of times the solidity of a cube changed, used to invalidate cached paths.
+     */
+    private long version;
 
     private final TerrainChangeListener updateListener;
 
-    private final ConnectedToBorder connectedToBorder;
+    private final BorderConnectivity connectedToBorder;
 
     private final World world;
     //</editor-fold>
@@ -131,9 +149,16 @@ public class Terrain {
         this.maxY = maxY;
         this.maxZ = maxZ;
 
-        this.cubes = new Cube[maxX][maxY][maxZ];
+        this.types = new byte[maxX * maxY * maxZ];
+        this.logs = new HashMap<>();
+        this.boulders = new HashMap<>();
+        this.solidNeighbours = new byte[maxX * maxY * maxZ];
+
+        this.neighbourDeltas = new int[neighbourOffsets.length];
+        for (int i = 0; i < neighbourOffsets.length; i++)
+            neighbourDeltas[i] = getIndex(neighbourOffsets[i][0], neighbourOffsets[i][1], neighbourOffsets[i][2]);
 
-        connectedToBorder = new ConnectedToBorder(maxX, maxY, maxZ);
+        connectedToBorder = new BorderConnectivity(maxX, maxY, maxZ);
 
     }
 
@@ -143,8 +168,9 @@ public class Terrain {
      * @param   terrainTypes
      *          A list with the types of all cubes.
      *
-     * @post    A new cube is created for each position in the terrain, the type is set to the supplied type.
+     * @post    The type of each cube in the terrain is set to the supplied type.
      * @post    Any cube that isn't connected to the border will cave in at start.
+     *          The connected cubes are found with one search from the border of the world.
      *
      * @throws  IllegalArgumentException
      *          | if the terrainTypes isn't effective or the size doesn't match.
@@ -155,22 +181,27 @@ public class Terrain {
                 || terrainTypes[0].length != maxY || terrainTypes[0][0].length != maxZ)
             throw new IllegalArgumentException("invalid terrainTypes given");
 
-        Set<IntVector> startCaveIn = new HashSet<>();
-
         for (int x = 0; x < maxX; x++) {
             for (int y = 0; y < maxY; y++) {
                 for (int z = 0; z < maxZ; z++) {
                     Type type = Type.fromId(terrainTypes[x][y][z]);
-                    this.cubes[x][y][z] = new Cube(type);
+                    this.types[getIndex(x, y, z)] = (byte) type.getId();
                     if (type == Type.WORKSHOP)
                         this.getWorld().addWorkshop(new IntVector(x, y, z));
-                    if (!isSolid(type))
-                        startCaveIn.addAll(connectedToBorder.changeSolidToPassable(x, y, z).stream().map(IntVector::new).collect(Collectors.toSet()));
                 }
             }
         }
 
-        startCaveIn.forEach(this::breakCube);
+        Arrays.fill(solidNeighbours, (byte) 0);
+        for (int x = 0; x < maxX; x++)
+            for (int y = 0; y < maxY; y++)
+                for (int z = 0; z < maxZ; z++)
+                    if (isSolid(Type.fromId(types[getIndex(x, y, z)])))
+                        updateSolidNeighbours(x, y, z, 1);
+
+        IntList startCaveIn = connectedToBorder.initialize(index -> !isSolid(Type.fromId(types[index])));
+        for (int i = 0; i < startCaveIn.size(); i++)
+            breakCube(getPosition(startCaveIn.get(i)));
     }
     //</editor-fold>
 
@@ -219,6 +250,14 @@ public class Terrain {
     public int getMaxZ() {
         return this.maxZ;
     }
+
+    /**
+     * Returns the version of the terrain, it increases each time the solidity of a cube changes.
+     */
+    @Basic
+    public long getVersion() {
+        return this.version;
+    }
     //</editor-fold>
 
     //<editor-fold desc="Cubes">
@@ -235,20 +274,123 @@ public class Terrain {
     }
 
     /**
-     * Returns a cube object for the given location.
+     * Checks whether the cube at the given position is stable for units to stand on.
+     *
+     * @param   cube
+     *          The position of the cube.
+     *
+     * @return  True if the cube lies at the border of the world or if any of its neighbours is solid.
+     *          | result == (cube.getX() == 0 || cube.getX() == getMaxX() - 1 ||
+     *          |            cube.getY() == 0 || cube.getY() == getMaxY() - 1 ||
+     *          |            cube.getZ() == 0 || cube.getZ() == getMaxZ() - 1 ||
+     *          |            getNeighbours(cube).anyMatch(p -> isValidPosition(p) && isSolid(getCubeType(p))))
+     *
+     * @throws  InvalidPositionException
+     *          If the given position is invalid.
+     */
+    public boolean isStablePosition(IntVector cube) throws InvalidPositionException {
+        return isStable(getIndex(cube));
+    }
+
+    /**
+     * Checks whether units can walk on the cube at the given coordinates.
+     *
+     * @return  True if the coordinates are within the world, the cube isn't solid and the cube is stable.
+     *          | result == (isValidPosition(new IntVector(x, y, z)) && !isSolid(getCubeType(new IntVector(x, y, z)))
+     *          |               && isStablePosition(new IntVector(x, y, z)))
+     */
+    public boolean isWalkable(int x, int y, int z) {
+        if (x < 0 || x >= maxX || y < 0 || y >= maxY || z < 0 || z >= maxZ)
+            return false;
+        int index = getIndex(x, y, z);
+        return isWalkable(index);
+    }
+
+    /**
+     * Checks whether units can walk on the cube at the given position.
+     *
+     * @param   cube
+     *          The position to check.
+     *
+     * @return  | result == isWalkable(cube.getX(), cube.getY(), cube.getZ())
+     */
+    public boolean isWalkable(IntVector cube) {
+        return isWalkable(cube.getX(), cube.getY(), cube.getZ());
+    }
+
+    /**
+     * Checks whether the cube with the given index lies at the border or has a solid neighbour.
+     */
+    @Model
+    private boolean isStable(int index) {
+        return solidNeighbours[index] > 0 || getBorderMask(index) != 0;
+    }
+
+    /**
+     * Checks whether units can walk on the cube with the given index.
+     *
+     * @param   index
+     *          The index of the cube.
+     *
+     * @return  | result == isWalkable(getPosition(index))
+     */
+    public boolean isWalkable(int index) {
+        return !isSolid(getCubeType(index)) && isStable(index);
+    }
+
+    /**
+     * Adds the given delta to the solid neighbour count of all neighbours of the given cube.
+     */
+    @Model
+    private void updateSolidNeighbours(int x, int y, int z, int delta) {
+        int index = getIndex(x, y, z);
+        int mask = getBorderMask(index);
+        for (int i = 0; i < neighbourDeltas.length; i++) {
+            if ((neighbourMasks[i] & mask) == 0)
+                solidNeighbours[index + neighbourDeltas[i]] += delta;
+        }
+    }
+
+    /**
+     * Returns the index of the cube at the given coordinates.
+     * Cubes are indexed like ByteMap3D, the coordinates must be within the world.
+     *
+     * @return  The index of the cube.
+     *          | result == x + y * getMaxX() + z * getMaxX() * getMaxY()
+     */
+    public int getIndex(int x, int y, int z) {
+        return x + y * maxX + z * maxX * maxY;
+    }
+
+    /**
+     * Returns the position of the cube with the given index.
+     *
+     * @param   index
+     *          The index of the cube.
+     *
+     * @return  The position for which getIndex returns the given index.
+     *          | getIndex(result) == index
+     */
+    public IntVector getPosition(int index) {
+        return new IntVector(index % maxX, (index / maxX) % maxY, index / (maxX * maxY));
+    }
+
+    /**
+     * Returns the index of the cube at the given location.
      *
      * @param   cubeLoc
      *          The location
      *
-     * @return  The cube at the given location.
+     * @return  The index of the cube at the given location.
+     *          | result == getIndex(cubeLoc.getX(), cubeLoc.getY(), cubeLoc.getZ())
      *
      * @throws  InvalidPositionException
      *          Throws if the given position is invalid.
      */
-    private Cube getCube(IntVector cubeLoc) throws InvalidPositionException {
+    public int getIndex(IntVector cubeLoc) throws InvalidPositionException {
         if (!isValidPosition(cubeLoc))
             throw new InvalidPositionException(cubeLoc);
-        return cubes[cubeLoc.getX()][cubeLoc.getY()][cubeLoc.getZ()];
+        return getIndex(cubeLoc.getX(), cubeLoc.getY(), cubeLoc.getZ());
     }
 
     /**
@@ -281,7 +423,19 @@ public class Terrain {
      *          If the given position is invalid.
      */
     public Type getCubeType(IntVector cube) throws InvalidPositionException {
-        return getCube(cube).type;
+        return getCubeType(getIndex(cube));
+    }
+
+    /**
+     * Gets the type of the cube with the given index.
+     *
+     * @param   index
+     *          The index of the cube.
+     *
+     * @return  | result == getCubeType(getPosition(index))
+     */
+    public Type getCubeType(int index) {
+        return Type.fromId(types[index]);
     }
 
     /**
@@ -298,6 +452,13 @@ public class Terrain {
      *
      * @effect  If the type is a workshop, the workshop is added to the world.
      *
+     * @post    If the solidity of the cube changed, the solid neighbour count of its neighbours is updated
+     *          and the version is increased.
+     *          | if (isSolid(this.getCubeType(pos)) != isSolid(type)) then new.getVersion() > this.getVersion()
+     *
+     * @effect  If the solidity of the cube changed, the world updates its reachability.
+     *          | if (isSolid(this.getCubeType(pos)) != isSolid(type)) then this.getWorld().terrainChanged(pos)
+     *
      * @throws  InvalidPositionException
      *          If the given position is invalid.
      */
@@ -305,7 +466,8 @@ public class Terrain {
         if (!isValidPosition(pos))
             throw new InvalidPositionException(pos);
 
-        if (isSolid(getCubeType(pos)) && !isSolid(type)) {
+        boolean wasSolid = isSolid(getCubeType(pos));
+        if (wasSolid && !isSolid(type)) {
             for (int[] cord : connectedToBorder.changeSolidToPassable(pos.getX(), pos.getY(), pos.getZ())) {
                 breakCube(new IntVector(cord));
                 updateListener.notifyTerrainChanged(cord[0], cord[1], cord[2]);
@@ -315,7 +477,12 @@ public class Terrain {
         if (type == Type.WORKSHOP)
             this.getWorld().addWorkshop(pos);
 
-        cubes[pos.getX()][pos.getY()][pos.getZ()].type = type;
+        types[getIndex(pos)] = (byte) type.getId();
+        if (wasSolid != isSolid(type)) {
+            version++;
+            updateSolidNeighbours(pos.getX(), pos.getY(), pos.getZ(), wasSolid ? -1 : 1);
+            this.getWorld().terrainChanged(pos);
+        }
         updateListener.notifyTerrainChanged(pos.getX(), pos.getY(), pos.getZ());
     }
 
@@ -346,7 +513,11 @@ public class Terrain {
      * @post    The cube where the object was positioned won't contain the object anymore.
      */
     public void removeObjectFromCube(GameObject object) {
-        getCube(object.getPosition().toIntVector()).gameObjects.remove(object);
+        int index = getIndex(object.getPosition().toIntVector());
+        if (object instanceof Log)
+            removeFromCube(logs, index, (Log) object);
+        else if (object instanceof Boulder)
+            removeFromCube(boulders, index, (Boulder) object);
     }
 
     /**
@@ -358,7 +529,17 @@ public class Terrain {
      * @post    The cube given by the gameObjects position will now contain the gameObject.
      */
     public void addObjectToCube(GameObject object) {
-        getCube(object.getPosition().toIntVector()).gameObjects.add(object);
+        int index = getIndex(object.getPosition().toIntVector());
+        if (object instanceof Log)
+            logs.computeIfAbsent(index, i -> new HashSet<>()).add((Log) object);
+        else if (object instanceof Boulder)
+            boulders.computeIfAbsent(index, i -> new HashSet<>()).add((Boulder) object);
+    }
+
+    private static <T> void removeFromCube(Map<Integer, Set<T>> objects, int index, T object) {
+        Set<T> cubeObjects = objects.get(index);
+        if (cubeObjects != null && cubeObjects.remove(object) && cubeObjects.isEmpty())
+            objects.remove(index);
     }
 
     /**
@@ -367,13 +548,13 @@ public class Terrain {
      * @param   cubeLoc
      *          The location of the cube.
      *
+     * @return  A read-only view of the logs on the cube.
+     *
      * @throws  InvalidPositionException
      *          If the given position is not valid.
      */
     public Set<Log> getLogs(IntVector cubeLoc) throws InvalidPositionException {
-        Cube cube = getCube(cubeLoc);
-        return cube.gameObjects.stream().filter(o -> o instanceof Log)
-                .map(Log.class::cast).collect(Collectors.toSet());
+        return Collections.unmodifiableSet(logs.getOrDefault(getIndex(cubeLoc), Collections.emptySet()));
     }
 
     /**
@@ -382,13 +563,73 @@ public class Terrain {
      * @param   cubeLoc
      *          The location of the cube.
      *
+     * @return  A read-only view of the boulders on the cube.
+     *
      * @throws  InvalidPositionException
      *          If the given position is not valid.
      */
     public Set<Boulder> getBoulders(IntVector cubeLoc) throws InvalidPositionException {
-        Cube cube = getCube(cubeLoc);
-        return cube.gameObjects.stream().filter(o -> o instanceof Boulder)
-                .map(Boulder.class::cast).collect(Collectors.toSet());
+        return Collections.unmodifiableSet(boulders.getOrDefault(getIndex(cubeLoc), Collections.emptySet()));
+    }
+
+    /**
+     * Returns the number of logs at the given location.
+     *
+     * @param   cubeLoc
+     *          The location of the cube.
+     *
+     * @return  The number of logs on the cube.
+     *          | result == this.getLogs(cubeLoc).size()
+     *
+     * @throws  InvalidPositionException
+     *          If the given position is not valid.
+     */
+    public int getNbLogs(IntVector cubeLoc) throws InvalidPositionException {
+        return getNbLogs(getIndex(cubeLoc));
+    }
+
+    /**
+     * Returns the number of logs on the cube with the given index.
+     *
+     * @param   index
+     *          The index of the cube, it must be a valid index.
+     *
+     * @return  The number of logs on the cube.
+     *          | result == this.getNbLogs(this.getPosition(index))
+     */
+    public int getNbLogs(int index) {
+        Set<Log> cubeLogs = logs.get(index);
+        return cubeLogs == null ? 0 : cubeLogs.size();
+    }
+
+    /**
+     * Returns the number of boulders at the given location.
+     *
+     * @param   cubeLoc
+     *          The location of the cube.
+     *
+     * @return  The number of boulders on the cube.
+     *          | result == this.getBoulders(cubeLoc).size()
+     *
+     * @throws  InvalidPositionException
+     *          If the given position is not valid.
+     */
+    public int getNbBoulders(IntVector cubeLoc) throws InvalidPositionException {
+        return getNbBoulders(getIndex(cubeLoc));
+    }
+
+    /**
+     * Returns the number of boulders on the cube with the given index.
+     *
+     * @param   index
+     *          The index of the cube, it must be a valid index.
+     *
+     * @return  The number of boulders on the cube.
+     *          | result == this.getNbBoulders(this.getPosition(index))
+     */
+    public int getNbBoulders(int index) {
+        Set<Boulder> cubeBoulders = boulders.get(index);
+        return cubeBoulders == null ? 0 : cubeBoulders.size();
     }
     //</editor-fold>
 
@@ -432,6 +673,98 @@ public class Terrain {
 
     };
 
+    private static final int X_LOW = 1, X_HIGH = 2, Y_LOW = 4, Y_HIGH = 8, Z_LOW = 16, Z_HIGH = 32;
+
+    /**
+     * For each neighbour offset, the border bits of the cubes for which that neighbour lies outside the world.
+     */
+    private static final int[] neighbourMasks;
+    static {
+        neighbourMasks = new int[neighbourOffsets.length];
+        for (int i = 0; i < neighbourOffsets.length; i++) {
+            int[] offset = neighbourOffsets[i];
+            neighbourMasks[i] = (offset[0] < 0 ? X_LOW : 0) | (offset[0] > 0 ? X_HIGH : 0)
+                    | (offset[1] < 0 ? Y_LOW : 0) | (offset[1] > 0 ? Y_HIGH : 0)
+                    | (offset[2] < 0 ? Z_LOW : 0) | (offset[2] > 0 ? Z_HIGH : 0);
+        }
+    }
+
+    /**
+     * Returns the border bits of the cube with the given index.
+     *
+     * @param   index
+     *          The index of the cube.
+     *
+     * @return  A bit mask with a bit set for each border of the world the cube lies against,
+     *          zero if the cube doesn't lie at the border.
+     */
+    @Model
+    private int getBorderMask(int index) {
+        int x = index % maxX, y = (index / maxX) % maxY, z = index / (maxX * maxY);
+        return (x == 0 ? X_LOW : 0) | (x == maxX - 1 ? X_HIGH : 0)
+                | (y == 0 ? Y_LOW : 0) | (y == maxY - 1 ? Y_HIGH : 0)
+                | (z == 0 ? Z_LOW : 0) | (z == maxZ - 1 ? Z_HIGH : 0);
+    }
+
+    /**
+     * Calls the visitor with the index of each neighbour of the given cube that lies within the world.
+     * The neighbours are visited in the same order as getNeighbours.
+     *
+     * @param   index
+     *          The index of the cube.
+     * @param   visitor
+     *          The visitor to call for each neighbour index.
+     */
+    public void forEachNeighbour(int index, IntConsumer visitor) {
+        int mask = getBorderMask(index);
+        for (int i = 0; i < neighbourDeltas.length; i++) {
+            if ((neighbourMasks[i] & mask) == 0)
+                visitor.accept(index + neighbourDeltas[i]);
+        }
+    }
+
+    /**
+     * Stores the indices of the neighbours of the given cube that lie within the world in the given array.
+     * The neighbours are stored in the same order as getNeighbours.
+     *
+     * @param   index
+     *          The index of the cube.
+     * @param   result
+     *          The array to store the indices in, it must have room for 26 indices.
+     *
+     * @return  The number of neighbours stored in the array.
+     */
+    public int getNeighbours(int index, int[] result) {
+        int mask = getBorderMask(index);
+        int n = 0;
+        for (int i = 0; i < neighbourDeltas.length; i++) {
+            if ((neighbourMasks[i] & mask) == 0)
+                result[n++] = index + neighbourDeltas[i];
+        }
+        return n;
+    }
+
+    /**
+     * Stores the indices of the walkable neighbours of the given cube in the given array.
+     * The neighbours are stored in the same order as getNeighbours.
+     *
+     * @param   index
+     *          The index of the cube.
+     * @param   result
+     *          The array to store the indices in, it must have room for 26 indices.
+     *
+     * @return  The number of neighbours stored in the array.
+     */
+    public int getWalkableNeighbours(int index, int[] result) {
+        int mask = getBorderMask(index);
+        int n = 0;
+        for (int i = 0; i < neighbourDeltas.length; i++) {
+            if ((neighbourMasks[i] & mask) == 0 && isWalkable(index + neighbourDeltas[i]))
+                result[n++] = index + neighbourDeltas[i];
+        }
+        return n;
+    }
+
     /**
      * Returns a stream of all neighbours of the given position.
      *
@@ -6,15 +6,42 @@ import be.kuleuven.cs.som.annotate.Model;
 import hillbillies.model.exceptions.InvalidCubeTypeException;
 import hillbillies.model.exceptions.InvalidPositionException;
 import hillbillies.model.unit.Unit;
+import hillbillies.model.util.ConnectedComponents;
+import hillbillies.model.util.BidirectionalPathFinder;
+import hillbillies.model.util.FlowField;
+import hillbillies.model.util.GridPathFinder;
+import hillbillies.model.util.Heuristic;
+import hillbillies.model.util.HierarchicalPathFinder;
+import hillbillies.model.util.IntList;
+import hillbillies.model.util.JumpPointPathFinder;
+import hillbillies.model.util.PathCache;
 import hillbillies.model.util.PathFinder;
+import hillbillies.model.util.SpatialIndex;
+import hillbillies.model.util.TimerWheel;
 import hillbillies.model.util.Util;
 import hillbillies.model.vector.IntVector;
+import hillbillies.model.vector.Vector;
 import hillbillies.part2.listener.TerrainChangeListener;
 
-import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 
@@ -33,6 +60,68 @@ public class World {
     private static final int MAX_FACTIONS = 5;
 
     private static final double DROP_CHANCE = 0.25;
+
+    /**
+     * The maximum number of cubes a local path search may expand.
+     */
+    private static final int LOCAL_SEARCH_LIMIT = 512;
+
+    /**
+     * The maximum number of paths in the path cache.
+     */
+    private static final int PATH_CACHE_CAPACITY = 256;
+
+    /**
+     * The minimal number of flow fields kept up to date, more are kept if there are more flow targets.
+     */
+    private static final int MAX_FLOW_FIELDS = 8;
+
+    /**
+     * The default maximum number of cubes a path request may expand before it is abandoned.
+     */
+    private static final int DEFAULT_PATH_REQUEST_LIMIT = 200000;
+
+    /**
+     * The minimal estimated length of a path for which the DIRECT path mode searches from both ends.
+     */
+    private static final double LONG_PATH_DISTANCE = 40;
+
+    /**
+     * The size in cubes of the cells of the spatial indices of units and game objects.
+     */
+    private static final int SPATIAL_CELL_SIZE = 4;
+
+    /**
+     * The duration of a tick of the timer wheel of sleeping units, they may wake up this much early.
+     */
+    private static final double SLEEP_RESOLUTION = 0.1;
+
+    /**
+     * The minimal idle time of a unit for which it sleeps instead of being advanced.
+     */
+    private static final double MIN_SLEEP_TIME = 0.5;
+
+    /**
+     * The algorithms that can be used to calculate the paths of units.
+     * The mode only applies to paths that are calculated at once, with a path budget of 0
+     * the path requests of units are calculated this way as well. Requests searched within
+     * a path budget are always calculated with A* over all cubes, since that search can be paused.
+     */
+    public enum PathMode {
+        /**
+         * A* over all cubes, bidirectional A* for long paths.
+         */
+        DIRECT,
+        /**
+         * A* over the regions of the terrain chunks, refined by A* through the found regions.
+         * Paths between nearby cubes are calculated directly.
+         */
+        HIERARCHICAL,
+        /**
+         * Jump point search, A* that skips the cubes of straight lines through open areas.
+         */
+        JUMP_POINT
+    }
     //</editor-fold>
 
     //<editor-fold desc="Variables">
@@ -47,6 +136,46 @@ public class World {
      * @invar   The sum of the size of all factions must be less than or equal to MAX_UNITS.
      */
     private final Set<Faction> factions;
+    /**
+     * The set of all units of the world, the union of the units of all factions.
+     *
+     * @invar   The set must be effective.
+     * @invar   The size of the set must be less than or equal to MAX_UNITS.
+     */
+    private final Set<Unit> units;
+    /**
+     * Read-only live views of the factions and units, handed out by the getters.
+     */
+    private final Set<Faction> factionsView;
+    private final Set<Unit> unitsView;
+    /**
+     * The units that are advanced in the current call to advanceTime, reused between calls.
+     */
+    private final List<Unit> advancingUnits;
+    /**
+     * The units that are advanced every step. The others sleep until their timers run out.
+     *
+     * @invar   The set must be effective.
+     * @invar   Each element must be in the set of all units and mustn't be sleeping.
+     */
+    private final Set<Unit> awakeUnits;
+    /**
+     * The sleeping units, scheduled at the time they must wake up, with the time at which they fell asleep.
+     *
+     * @invar   The wheel and the map contain the same units.
+     * @invar   Each sleeping unit is in the set of all units.
+     */
+    private final TimerWheel<Unit> sleepingUnits;
+    private final Map<Unit, Double> sleepingSince;
+    /**
+     * The time passed in this world.
+     */
+    private double time;
+    /**
+     * The time step while the units are advanced, 0 otherwise.
+     * Units woken during it aren't advanced anymore in the step, so their sleep lasts until the end of the step.
+     */
+    private double advancingStep;
     /**
      * The set of all GameObjects (Log & Boulder) in the world.
      *
@@ -54,6 +183,26 @@ public class World {
      * @invar   Each GameObject must be effective.
      */
     private final Set<GameObject> gameObjects;
+    /**
+     * The sets of the logs and the boulders among the GameObjects.
+     *
+     * @invar   The sets must be effective.
+     * @invar   Each element must be in the set of all GameObjects.
+     */
+    private final Set<Log> logs;
+    private final Set<Boulder> boulders;
+    /**
+     * The GameObjects that may move. The others rest on solid ground and sleep until the terrain below them changes.
+     *
+     * @invar   The set must be effective.
+     * @invar   Each element must be in the set of all GameObjects.
+     */
+    private final Set<GameObject> awakeGameObjects;
+    /**
+     * Read-only live views of the logs and boulders, handed out by the getters.
+     */
+    private final Set<Log> logsView;
+    private final Set<Boulder> bouldersView;
     /**
      * Set of the position of all workshops in the world.
      *
@@ -63,7 +212,161 @@ public class World {
      */
     private final Set<IntVector> workshops;
 
+    /**
+     * The spatial index of the positions of all units in the world.
+     */
+    private final SpatialIndex<Unit> unitIndex;
+    /**
+     * The spatial index of the positions of all GameObjects in the world.
+     */
+    private final SpatialIndex<GameObject> gameObjectIndex;
+
+    /**
+     * The generic pathfinder, used for searches that aren't between two known cubes.
+     */
     private final PathFinder<IntVector> pathFinder;
+
+    /**
+     * The pathfinder used to calculate the paths of units, null until it is first used.
+     */
+    private GridPathFinder gridPathFinder;
+
+    /**
+     * The hierarchical pathfinder, used for long paths in the HIERARCHICAL path mode.
+     * It is null until it is first used, and while another path mode is selected.
+     */
+    private HierarchicalPathFinder hierarchicalPathFinder;
+
+    /**
+     * The jump point pathfinder, used in the JUMP_POINT path mode.
+     * It is null until it is first used, and while another path mode is selected.
+     */
+    private JumpPointPathFinder jumpPointPathFinder;
+
+    /**
+     * The bidirectional pathfinder, used for long paths in the DIRECT path mode.
+     * It is null until it is first used, and while another path mode is selected.
+     */
+    private BidirectionalPathFinder bidirectionalPathFinder;
+
+    /**
+     * The cache of calculated paths between cubes.
+     */
+    private final PathCache pathCache;
+
+    /**
+     * The flow fields by the indices of their targets, in least recently used order.
+     *
+     * @invar   The map holds at most getFlowFieldCapacity() fields.
+     */
+    private final Map<Set<Integer>, FlowField> flowFields;
+
+    /**
+     * The positions, besides the workshops, to which paths are taken from flow fields.
+     *
+     * @invar   The set must be effective.
+     */
+    private final Set<IntVector> flowTargets;
+
+    /**
+     * The pending path requests, in the order they were made.
+     *
+     * @invar   The queue must be effective.
+     * @invar   Each request in the queue isn't done.
+     */
+    private final Deque<PathRequest> pathRequests;
+
+    /**
+     * The workers calculating the path requests, one for each path thread.
+     *
+     * @invar   The list must be effective and holds getPathThreads() workers.
+     */
+    private final List<RequestWorker> requestWorkers;
+
+    /**
+     * The pool running the workers in parallel, null while there is only one path thread.
+     * The pool is owned by this world, it is created and shut down by setPathThreads.
+     */
+    private ForkJoinPool pathPool;
+
+    /**
+     * The maximum number of cubes expanded for path requests in one time step, 0 if paths are calculated
+     * when they are requested.
+     *
+     * @invar   The budget isn't negative.
+     */
+    private int pathBudget;
+
+    /**
+     * The maximum number of cubes expanded for one path request before it is abandoned.
+     *
+     * @invar   The limit is positive.
+     */
+    private int pathRequestLimit;
+
+    /**
+     * Calculates the path requests assigned to it with its own pathfinder.
+     * Workers only read the terrain, so they can run in parallel while the world doesn't change.
+     */
+    private final class RequestWorker implements Callable<Void> {
+        private GridPathFinder finder; // created when the worker gets its first request
+        private PathRequest searched; // the request of which the search was started
+        private long searchedVersion; // the terrain version the search started at
+
+        private final List<PathRequest> assigned = new ArrayList<>();
+        private final Map<PathRequest, IntList> results = new HashMap<>(); // null if abandoned or no path exists
+
+        /**
+         * Continues the searches of the assigned requests in order, until the path budget is used.
+         */
+        @Override
+        public Void call() {
+            int budget = getPathBudget() == 0 ? Integer.MAX_VALUE : getPathBudget();
+            for (PathRequest request : assigned) {
+                if (budget <= 0)
+                    break;
+                if (finder == null)
+                    finder = new GridPathFinder(terrain.getMaxX(), terrain.getMaxY(), terrain.getMaxZ(),
+                            terrain::getWalkableNeighbours);
+                if (request != searched || searchedVersion != terrain.getVersion()) {
+                    searched = request;
+                    searchedVersion = terrain.getVersion();
+                    finder.startSearch(terrain.getIndex(request.getStart()), terrain.getIndex(request.getTarget()),
+                            null);
+                }
+
+                int before = finder.getExpandedNodes();
+                boolean finished = finder.continueSearch(
+                        Math.min(budget, getPathRequestLimit() - request.getExpandedNodes()));
+                int expanded = finder.getExpandedNodes() - before;
+                budget -= expanded;
+                request.addExpandedNodes(expanded);
+
+                if (finished)
+                    results.put(request, finder.getSearchResult());
+                else if (request.getExpandedNodes() >= getPathRequestLimit())
+                    results.put(request, null);
+                else
+                    break;
+                searched = null;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The algorithm used to calculate the paths of units.
+     *
+     * @invar   The path mode must be effective.
+     */
+    private PathMode pathMode;
+
+    /**
+     * The connected-component labels of all walkable cubes in the world.
+     *
+     * @invar   Two walkable cubes have the same label if and only if a path exists between them.
+     */
+    private final ConnectedComponents reachability;
     //</editor-fold>
 
     //<editor-fold desc="Constructor">
@@ -79,6 +382,8 @@ public class World {
      *
      * @post    The getTerrain() function will return a newly created terrain using the supplied terrainTypes.
      *          | this.getTerrain() == (new Terrain(this, terrainTypes, modelListener))
+     * @post    Paths are calculated directly, other path modes must be chosen with setPathMode.
+     *          | new.getPathMode() == PathMode.DIRECT
      *
      * @throws  IllegalArgumentException
      *          Throws if terrainTypes is null or modelListener is null.
@@ -87,17 +392,57 @@ public class World {
      */
     public World(int[][][] terrainTypes, TerrainChangeListener modelListener) throws IllegalArgumentException, InvalidCubeTypeException {
         this.factions = new HashSet<>();
+        this.units = new HashSet<>();
+        this.factionsView = Collections.unmodifiableSet(factions);
+        this.unitsView = Collections.unmodifiableSet(units);
+        this.advancingUnits = new ArrayList<>();
+        this.awakeUnits = new HashSet<>();
+        this.sleepingUnits = new TimerWheel<>(SLEEP_RESOLUTION);
+        this.sleepingSince = new HashMap<>();
         this.gameObjects = new HashSet<>();
+        this.logs = new HashSet<>();
+        this.boulders = new HashSet<>();
+        this.awakeGameObjects = new HashSet<>();
+        this.logsView = Collections.unmodifiableSet(logs);
+        this.bouldersView = Collections.unmodifiableSet(boulders);
         this.workshops = new HashSet<>();
 
         this.terrain = new Terrain(this, terrainTypes.length,
                                          terrainTypes[0].length, terrainTypes[0][0].length, modelListener);
+        // the initial cave-in already drops logs and boulders, so their index must exist before it.
+        this.unitIndex = new SpatialIndex<>(terrain.getMaxX(), terrain.getMaxY(), terrain.getMaxZ(),
+                SPATIAL_CELL_SIZE);
+        this.gameObjectIndex = new SpatialIndex<>(terrain.getMaxX(), terrain.getMaxY(), terrain.getMaxZ(),
+                SPATIAL_CELL_SIZE);
         this.terrain.setTerrain(terrainTypes);
 
+        this.reachability = new ConnectedComponents(terrain.getMaxX(), terrain.getMaxY(), terrain.getMaxZ(),
+                terrain::isWalkable);
+
+        this.pathMode = PathMode.DIRECT;
+        this.pathCache = new PathCache(terrain.getMaxX(), terrain.getMaxY(), PATH_CACHE_CAPACITY, terrain::isWalkable);
+        this.flowFields = new LinkedHashMap<Set<Integer>, FlowField>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Set<Integer>, FlowField> eldest) {
+                return size() > getFlowFieldCapacity();
+            }
+        };
+        this.flowTargets = new HashSet<>();
+        this.pathRequests = new ArrayDeque<>();
+        this.pathBudget = 0;
+        this.pathRequestLimit = DEFAULT_PATH_REQUEST_LIMIT;
+        this.requestWorkers = new ArrayList<>();
+        this.requestWorkers.add(new RequestWorker());
+
         this.pathFinder = new PathFinder<>(new PathFinder.PathGlue<IntVector>() {
             @Override
             public Stream<IntVector> getNeighbours(IntVector pos) {
-                return Terrain.getNeighbours(pos).filter(n -> Unit.isValidPosition(World.this, n) && Unit.isStablePosition(World.this, n));
+                Stream.Builder<IntVector> neighbours = Stream.builder();
+                terrain.forEachNeighbour(terrain.getIndex(pos), n -> {
+                    if (terrain.isWalkable(n))
+                        neighbours.add(terrain.getPosition(n));
+                });
+                return neighbours.build();
             }
 
             @Override
@@ -106,9 +451,9 @@ public class World {
             }
 
             @Override
-            public int getHeuristic(IntVector a, IntVector b) {
+            public double getHeuristic(IntVector a, IntVector b) {
                 IntVector diff = a.subtract(b);
-                return Math.abs(diff.getX()) + Math.abs(diff.getY()) + Math.abs(diff.getZ());
+                return Heuristic.OCTILE.estimate(diff.getX(), diff.getY(), diff.getZ());
             }
         });
     }
@@ -121,8 +466,12 @@ public class World {
      * @param   dt
      *          The passed time between the last call to advanceTime.
      *
-     * @effect  Executes advanceTime() on all Units and GameObjects of the World.
-     *
+     * @effect  Calculates the pending path requests within the path budget.
+     *          | this.processPathRequests()
+     * @effect  Wakes the sleeping units whose timers run out in this step.
+     * @effect  Executes advanceTime() on all awake Units and awake GameObjects of the World.
+     * @post    The Units that only count down their timers for a while fall asleep until their timers run out.
+     * @post    The GameObjects that aren't falling anymore fall asleep.
      *
      * @throws  IllegalArgumentException
      *          If the dt is less than 0.2 or smaller than 0.
@@ -131,10 +480,71 @@ public class World {
         if (dt >= 0.2 || dt < 0)
             throw new IllegalArgumentException("invalid dt");
 
-        // call advanceTime on all units
-        getUnits().stream().filter(Unit::isAlive).forEach(unit -> unit.advanceTime(dt));
+        processPathRequests();
 
-        this.gameObjects.forEach(o -> o.advanceTime(dt));
+        sleepingUnits.advance(time + dt, this::wakeUnit);
+
+        // call advanceTime on the awake units, units can die or be added while advancing.
+        advancingUnits.addAll(awakeUnits);
+        advancingStep = dt;
+        for (Unit unit : advancingUnits) {
+            if (!unit.isAlive() || sleepingSince.containsKey(unit))
+                continue;
+            unit.advanceTime(dt);
+            double idle = unit.getIdleTime();
+            if (idle >= MIN_SLEEP_TIME && awakeUnits.remove(unit)) {
+                sleepingSince.put(unit, time + dt);
+                sleepingUnits.schedule(unit, time + dt + idle);
+            }
+        }
+        advancingUnits.clear();
+        advancingStep = 0;
+        time += dt;
+
+        // only awake GameObjects can move, the others sleep until the terrain below them changes.
+        Iterator<GameObject> it = awakeGameObjects.iterator();
+        while (it.hasNext()) {
+            GameObject object = it.next();
+            object.advanceTime(dt);
+            if (!object.isFalling())
+                it.remove();
+        }
+    }
+
+    /**
+     * Wakes the given unit if it is sleeping.
+     *
+     * @param   unit
+     *          The unit to wake.
+     *
+     * @post    The unit isn't sleeping.
+     * @effect  If the unit was sleeping, its timers are counted down for the time it slept.
+     *          | unit.skipTime(this.getSleepTime(unit))
+     */
+    public void wakeUnit(Unit unit) {
+        double slept = getSleepTime(unit);
+        if (sleepingSince.remove(unit) == null)
+            return;
+        sleepingUnits.cancel(unit);
+        awakeUnits.add(unit);
+        unit.skipTime(slept);
+    }
+
+    /**
+     * Returns the time the given unit has slept.
+     *
+     * @param   unit
+     *          The unit to check.
+     *
+     * @return  Zero if the unit isn't sleeping. Otherwise the time since it fell asleep,
+     *          up to the end of the current step if the units are being advanced, because it isn't advanced in it.
+     *          A unit that fell asleep in the current step was already advanced for it, and has slept zero.
+     */
+    public double getSleepTime(Unit unit) {
+        Double since = sleepingSince.get(unit);
+        if (since == null)
+            return 0;
+        return Math.max(0, time + advancingStep - since);
     }
     //</editor-fold>
 
@@ -147,6 +557,14 @@ public class World {
         return pathFinder;
     }
 
+    /**
+     * Returns the cache of the paths calculated by getPath.
+     */
+    @Basic @Immutable
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
     /**
      * Returns the terrain of this world.
      */
@@ -156,6 +574,578 @@ public class World {
     }
     //</editor-fold>
 
+    //<editor-fold desc="Reachability">
+    /**
+     * Returns whether a path exists from the start position to the target position.
+     *
+     * @param   start
+     *          The start position, doesn't need to be walkable.
+     * @param   target
+     *          The target position.
+     *
+     * @return  True if the start equals the target or if the target lies in the same component
+     *          as the start or as one of the walkable neighbours of the start.
+     *          | result == this.getPathFinder().isReachable(start, target)
+     */
+    public boolean isReachable(IntVector start, IntVector target) {
+        if (!this.getTerrain().isValidPosition(start) || !this.getTerrain().isValidPosition(target))
+            return false;
+        return reachability.isConnected(start.getX(), start.getY(), start.getZ(),
+                target.getX(), target.getY(), target.getZ());
+    }
+
+    /**
+     * Returns the cube with the cheapest path from the start position that satisfies the given condition.
+     * The cubes are searched outward from start, in order of the cost of their path.
+     *
+     * @param   start
+     *          The start position.
+     * @param   isTarget
+     *          The condition on the index of a cube, as given by Terrain.getIndex.
+     *
+     * @return  The reachable cube satisfying the condition with the cheapest path from start,
+     *          start itself if it satisfies the condition.
+     *          An empty optional if no such cube is reachable or start isn't valid.
+     *          | result.isPresent() == (for some cube in the world:
+     *          |       this.isReachable(start, cube) && isTarget.test(this.getTerrain().getIndex(cube)))
+     */
+    public Optional<IntVector> getNearestReachable(IntVector start, IntPredicate isTarget) {
+        if (!this.getTerrain().isValidPosition(start))
+            return Optional.empty();
+        IntList path = getGridPathFinder().getPathToNearest(terrain.getIndex(start), isTarget);
+        if (path == null)
+            return Optional.empty();
+        return Optional.of(terrain.getPosition(path.get(path.size() - 1)));
+    }
+
+    /**
+     * Returns a unit satisfying the given condition in the reachable cube with the cheapest path from start.
+     *
+     * @param   start
+     *          The start position.
+     * @param   condition
+     *          The condition the unit must satisfy.
+     *
+     * @return  A unit satisfying the condition in the cube nearest to start,
+     *          or an empty optional if no such unit is reachable.
+     *          | result.isPresent() == this.getUnits().stream().anyMatch(u -> condition.test(u) &&
+     *          |       this.isReachable(start, u.getPosition().toIntVector()))
+     */
+    public Optional<Unit> getNearestReachableUnit(IntVector start, Predicate<? super Unit> condition) {
+        // without any candidate the search would visit every cube reachable from start.
+        if (!this.getNearestUnit(start.toVector(), condition).isPresent())
+            return Optional.empty();
+        int maxX = terrain.getMaxX(), maxY = terrain.getMaxY();
+        return this.getNearestReachable(start, index -> unitIndex.getFirstInCube(index % maxX, (index / maxX) % maxY,
+                        index / (maxX * maxY), condition).isPresent())
+                .flatMap(cube -> unitIndex.getFirstInCube(cube.getX(), cube.getY(), cube.getZ(), condition));
+    }
+
+    /**
+     * Returns a random position that can be reached from the start position.
+     *
+     * @param   start
+     *          The start position.
+     *
+     * @return  A position chosen uniformly among the walkable positions reachable from start,
+     *          or an empty optional if start is invalid or none are reachable.
+     *          | result.isPresent() ==> this.isReachable(start, result.get())
+     */
+    public Optional<IntVector> getRandomReachable(IntVector start) {
+        if (!this.getTerrain().isValidPosition(start))
+            return Optional.empty();
+        int label = reachability.getStartLabel(start.getX(), start.getY(), start.getZ());
+        int size = reachability.getSize(label);
+        if (size == 0)
+            return Optional.empty();
+        return Optional.of(terrain.getPosition(reachability.getCube(label, Util.randomInt(size))));
+    }
+
+    /**
+     * Calculates a path from the start position to the target position.
+     *
+     * @param   start
+     *          The start position.
+     * @param   target
+     *          The target position.
+     *
+     * @return  The positions of the cubes on the path, the first element is start and the last is target.
+     *          Each cube after start is walkable and neighbours the previous cube.
+     *          If no path exists or one of the positions is invalid, the result is null,
+     *          without searching.
+     *          If the target is a flow target, the path follows its flow field.
+     *          Otherwise the path is reused from the path cache if possible,
+     *          otherwise it is calculated with the algorithm given by the path mode and cached.
+     */
+    public Deque<IntVector> getPath(IntVector start, IntVector target) {
+        if (!this.isReachable(start, target))
+            return null;
+        int startIndex = terrain.getIndex(start), targetIndex = terrain.getIndex(target);
+        if (startIndex == targetIndex)
+            return toPositions(getGridPathFinder().getPath(startIndex, targetIndex));
+        if (this.isFlowTarget(target))
+            return toPositions(this.getFlowField(Collections.singleton(target)).getPath(startIndex));
+
+        long version = terrain.getVersion();
+        IntList indices = pathCache.get(startIndex, targetIndex, version);
+        if (indices != null)
+            return toPositions(indices);
+        switch (this.getPathMode()) {
+            case HIERARCHICAL:
+                indices = getHierarchicalPathFinder().getPath(startIndex, targetIndex);
+                break;
+            case JUMP_POINT:
+                indices = getJumpPointPathFinder().getPath(startIndex, targetIndex);
+                break;
+            default:
+                IntVector diff = target.subtract(start);
+                if (Heuristic.OCTILE.estimate(diff.getX(), diff.getY(), diff.getZ()) >= LONG_PATH_DISTANCE)
+                    indices = getBidirectionalPathFinder().getPath(startIndex, targetIndex);
+                else
+                    indices = getGridPathFinder().getPath(startIndex, targetIndex);
+        }
+        if (indices != null)
+            pathCache.put(indices, version);
+        return toPositions(indices);
+    }
+
+    /**
+     * Calculates a short path from the start position to the nearest of the given targets.
+     * The search gives up after expanding a limited number of cubes, it is meant to repair and extend paths.
+     *
+     * @param   start
+     *          The start position.
+     * @param   targets
+     *          The positions to choose from, the search is directed towards the first one.
+     *
+     * @return  The positions of the cubes on the path, the first element is start and the last is one of the targets.
+     *          Each cube after start is walkable and neighbours the previous cube.
+     *          If no path is found within the limit or a position is invalid, the result is null.
+     */
+    public Deque<IntVector> getLocalPath(IntVector start, List<IntVector> targets) {
+        if (!this.getTerrain().isValidPosition(start) || targets.isEmpty())
+            return null;
+        Set<Integer> goals = new HashSet<>();
+        for (IntVector target : targets) {
+            if (!this.getTerrain().isValidPosition(target))
+                return null;
+            goals.add(terrain.getIndex(target));
+        }
+        return toPositions(getGridPathFinder().getPathToAny(terrain.getIndex(start), terrain.getIndex(targets.get(0)),
+                goals::contains, LOCAL_SEARCH_LIMIT));
+    }
+
+    /**
+     * Returns the grid pathfinder, it is created when it is first used.
+     */
+    @Model
+    private GridPathFinder getGridPathFinder() {
+        if (gridPathFinder == null)
+            gridPathFinder = new GridPathFinder(terrain.getMaxX(), terrain.getMaxY(), terrain.getMaxZ(),
+                    terrain::getWalkableNeighbours);
+        return gridPathFinder;
+    }
+
+    /**
+     * Returns the hierarchical pathfinder, it is created from the current terrain when it is first used.
+     */
+    @Model
+    private HierarchicalPathFinder getHierarchicalPathFinder() {
+        if (hierarchicalPathFinder == null)
+            hierarchicalPathFinder = new HierarchicalPathFinder(terrain.getMaxX(), terrain.getMaxY(),
+                    terrain.getMaxZ(), terrain::isWalkable, terrain::getWalkableNeighbours, getGridPathFinder());
+        return hierarchicalPathFinder;
+    }
+
+    /**
+     * Returns the jump point pathfinder, it is created when it is first used.
+     */
+    @Model
+    private JumpPointPathFinder getJumpPointPathFinder() {
+        if (jumpPointPathFinder == null)
+            jumpPointPathFinder = new JumpPointPathFinder(terrain.getMaxX(), terrain.getMaxY(), terrain.getMaxZ(),
+                    terrain::isWalkable);
+        return jumpPointPathFinder;
+    }
+
+    /**
+     * Returns the bidirectional pathfinder, it is created when it is first used.
+     */
+    @Model
+    private BidirectionalPathFinder getBidirectionalPathFinder() {
+        if (bidirectionalPathFinder == null)
+            bidirectionalPathFinder = new BidirectionalPathFinder(terrain.getMaxX(), terrain.getMaxY(),
+                    terrain.getMaxZ(), terrain::getWalkableNeighbours);
+        return bidirectionalPathFinder;
+    }
+
+    /**
+     * Converts a path of cube indices to a path of positions.
+     */
+    private Deque<IntVector> toPositions(IntList indices) {
+        if (indices == null)
+            return null;
+        Deque<IntVector> path = new ArrayDeque<>(indices.size());
+        for (int i = 0; i < indices.size(); i++)
+            path.add(terrain.getPosition(indices.get(i)));
+        return path;
+    }
+
+    /**
+     * Returns the algorithm used to calculate the paths of units.
+     */
+    @Basic
+    public PathMode getPathMode() {
+        return pathMode;
+    }
+
+    /**
+     * Sets the algorithm used to calculate the paths of units.
+     * The mode is used by getPath, and so by requestPath while the path budget is 0.
+     * Path requests searched within a positive path budget don't use it.
+     *
+     * @param   pathMode
+     *          The new path mode.
+     *
+     * @post    The path mode is set to the given mode.
+     *          | new.getPathMode() == pathMode
+     * @post    The pathfinders only used by other path modes are released,
+     *          the pathfinder of the new mode is created when it is first used.
+     *
+     * @throws  IllegalArgumentException
+     *          If the given mode isn't effective.
+     */
+    public void setPathMode(PathMode pathMode) throws IllegalArgumentException {
+        if (pathMode == null)
+            throw new IllegalArgumentException("pathMode isn't effective");
+        this.pathMode = pathMode;
+        if (pathMode != PathMode.DIRECT)
+            bidirectionalPathFinder = null;
+        if (pathMode != PathMode.HIERARCHICAL)
+            hierarchicalPathFinder = null;
+        if (pathMode != PathMode.JUMP_POINT)
+            jumpPointPathFinder = null;
+    }
+
+    //</editor-fold>
+
+    //<editor-fold desc="Path requests">
+    /**
+     * Requests a path from the start position to the target position.
+     *
+     * @param   start
+     *          The start position.
+     * @param   target
+     *          The target position.
+     *
+     * @return  A request for the path, that is done if the path budget is 0 or the path is known without searching:
+     *          if a position is invalid, the target isn't reachable, the target is a flow target whose
+     *          flow field is kept up to date, or the path is cached. Otherwise the path is calculated with A* over
+     *          all cubes during the following time steps, whatever the path mode is: only A* can pause its search
+     *          when the path budget is used. Flow fields aren't built within the path budget either.
+     *          | if (this.getPathBudget() == 0) then result.getPath() == this.getPath(start, target)
+     */
+    public PathRequest requestPath(IntVector start, IntVector target) {
+        PathRequest request = new PathRequest(start, target);
+        if (this.getPathBudget() == 0 || !this.isReachable(start, target) || start.equals(target)
+                || (this.isFlowTarget(target) && this.hasFlowField(target))) {
+            request.complete(this.getPath(start, target));
+            return request;
+        }
+        IntList cached = pathCache.get(terrain.getIndex(start), terrain.getIndex(target), terrain.getVersion());
+        if (cached != null) {
+            request.complete(toPositions(cached));
+            return request;
+        }
+        pathRequests.add(request);
+        return request;
+    }
+
+    /**
+     * Calculates the pending path requests in the order they were made, until the path budget is used.
+     *
+     * The requests are divided over the path threads, a request stays with the thread that started
+     * its search. The threads search in parallel and the results are applied in the order of the requests.
+     *
+     * @post    Cancelled requests are removed.
+     * @post    The requests whose path is found, or for which no path exists, are done.
+     *          Found paths are added to the path cache.
+     * @post    The requests that expanded more cubes than the path request limit are done without a path.
+     * @post    A search that started before the terrain changed is restarted.
+     */
+    @Model
+    private void processPathRequests() {
+        pathRequests.removeIf(PathRequest::isCancelled);
+        if (pathRequests.isEmpty())
+            return;
+
+        int next = 0;
+        for (RequestWorker worker : requestWorkers) {
+            worker.assigned.clear();
+            worker.results.clear();
+        }
+        for (PathRequest request : pathRequests) {
+            RequestWorker owner = null;
+            for (RequestWorker worker : requestWorkers)
+                if (worker.searched == request)
+                    owner = worker;
+            if (owner == null)
+                owner = requestWorkers.get(next++ % requestWorkers.size());
+            owner.assigned.add(request);
+        }
+
+        if (requestWorkers.size() == 1) {
+            requestWorkers.get(0).call();
+        } else {
+            try {
+                for (Future<Void> result : pathPool.invokeAll(requestWorkers))
+                    result.get();
+            } catch (InterruptedException | ExecutionException err) {
+                throw new IllegalStateException("path search failed", err);
+            }
+        }
+
+        long version = terrain.getVersion();
+        Iterator<PathRequest> it = pathRequests.iterator();
+        while (it.hasNext()) {
+            PathRequest request = it.next();
+            for (RequestWorker worker : requestWorkers) {
+                if (worker.results.containsKey(request)) {
+                    IntList indices = worker.results.get(request);
+                    if (indices != null)
+                        pathCache.put(indices, version);
+                    request.complete(toPositions(indices));
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of cubes expanded for path requests in one time step.
+     * A budget of 0 means paths are calculated when they are requested.
+     */
+    @Basic
+    public int getPathBudget() {
+        return pathBudget;
+    }
+
+    /**
+     * Sets the maximum number of cubes expanded for path requests in one time step.
+     *
+     * @param   pathBudget
+     *          The new budget, 0 to calculate paths when they are requested.
+     *
+     * @post    The path budget is set to the given budget.
+     *          | new.getPathBudget() == pathBudget
+     *
+     * @throws  IllegalArgumentException
+     *          If the budget is negative.
+     */
+    public void setPathBudget(int pathBudget) throws IllegalArgumentException {
+        if (pathBudget < 0)
+            throw new IllegalArgumentException("pathBudget is negative");
+        this.pathBudget = pathBudget;
+    }
+
+    /**
+     * Returns the maximum number of cubes expanded for one path request before it is abandoned.
+     */
+    @Basic
+    public int getPathRequestLimit() {
+        return pathRequestLimit;
+    }
+
+    /**
+     * Sets the maximum number of cubes expanded for one path request before it is abandoned.
+     *
+     * @param   pathRequestLimit
+     *          The new limit.
+     *
+     * @post    The limit is set to the given limit.
+     *          | new.getPathRequestLimit() == pathRequestLimit
+     *
+     * @throws  IllegalArgumentException
+     *          If the limit isn't positive.
+     */
+    public void setPathRequestLimit(int pathRequestLimit) throws IllegalArgumentException {
+        if (pathRequestLimit <= 0)
+            throw new IllegalArgumentException("pathRequestLimit isn't positive");
+        this.pathRequestLimit = pathRequestLimit;
+    }
+
+    /**
+     * Returns the number of threads calculating path requests in parallel.
+     */
+    public int getPathThreads() {
+        return requestWorkers.size();
+    }
+
+    /**
+     * Sets the number of threads calculating path requests in parallel.
+     * Each thread has its own pathfinder, the path budget applies to each thread.
+     *
+     * @param   pathThreads
+     *          The new number of threads.
+     *
+     * @post    The number of threads is set to the given number.
+     *          | new.getPathThreads() == pathThreads
+     * @post    The searches of the path requests are restarted.
+     * @post    The previous pool of path threads is shut down. A new pool is only created for more than one
+     *          thread, so setting one thread releases the threads of the world.
+     *
+     * @throws  IllegalArgumentException
+     *          If the number of threads isn't positive.
+     */
+    public void setPathThreads(int pathThreads) throws IllegalArgumentException {
+        if (pathThreads <= 0)
+            throw new IllegalArgumentException("pathThreads isn't positive");
+        if (pathThreads == this.getPathThreads())
+            return;
+        requestWorkers.clear();
+        for (int i = 0; i < pathThreads; i++)
+            requestWorkers.add(new RequestWorker());
+        if (pathPool != null)
+            pathPool.shutdown();
+        pathPool = pathThreads > 1 ? new ForkJoinPool(pathThreads) : null;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Flow fields">
+    /**
+     * Returns the flow field towards the given targets, the field is kept up to date with the terrain
+     * until it is one of the least recently used fields.
+     *
+     * @param   targets
+     *          The positions of the targets.
+     *
+     * @return  The flow field of which the targets are the given positions.
+     *
+     * @throws  IllegalArgumentException
+     *          If there are no targets or one of the targets isn't a valid position.
+     */
+    public FlowField getFlowField(Collection<IntVector> targets) throws IllegalArgumentException {
+        Set<Integer> indices = new HashSet<>();
+        for (IntVector target : targets) {
+            if (!this.getTerrain().isValidPosition(target))
+                throw new IllegalArgumentException("invalid flow target");
+            indices.add(terrain.getIndex(target));
+        }
+        if (indices.isEmpty())
+            throw new IllegalArgumentException("no flow targets");
+        return flowFields.computeIfAbsent(indices, key -> new FlowField(terrain.getMaxX(), terrain.getMaxY(),
+                terrain.getMaxZ(), key.stream().mapToInt(Integer::intValue).toArray(), terrain::isWalkable,
+                terrain::getWalkableNeighbours));
+    }
+
+    /**
+     * Returns whether the flow field towards the single given target is kept up to date.
+     */
+    private boolean hasFlowField(IntVector target) {
+        return flowFields.containsKey(Collections.singleton(terrain.getIndex(target)));
+    }
+
+    /**
+     * Returns the maximum number of flow fields kept up to date.
+     *
+     * @return  MAX_FLOW_FIELDS, or more if there are more flow targets: one field for each workshop
+     *          and added flow target, and one towards all workshops.
+     *          | result == Math.max(MAX_FLOW_FIELDS, this.workshops.size() + this.flowTargets.size() + 1)
+     */
+    private int getFlowFieldCapacity() {
+        return Math.max(MAX_FLOW_FIELDS, workshops.size() + flowTargets.size() + 1);
+    }
+
+    /**
+     * Returns whether paths to the given position are taken from a flow field.
+     *
+     * @return  True if the position is a workshop or was added as flow target.
+     *          | result == (this.getAllWorkshops().anyMatch(target::equals) || this.flowTargets.contains(target))
+     */
+    public boolean isFlowTarget(IntVector target) {
+        return workshops.contains(target) || flowTargets.contains(target);
+    }
+
+    /**
+     * Adds a position to which paths are taken from a flow field.
+     *
+     * @param   target
+     *          The position to add.
+     *
+     * @post    The position is a flow target.
+     *          | new.isFlowTarget(target)
+     *
+     * @throws  InvalidPositionException
+     *          If the position isn't valid.
+     */
+    public void addFlowTarget(IntVector target) throws InvalidPositionException {
+        if (!this.getTerrain().isValidPosition(target))
+            throw new InvalidPositionException(target);
+        flowTargets.add(target);
+    }
+
+    /**
+     * Removes a position that was added as flow target.
+     *
+     * @param   target
+     *          The position to remove.
+     *
+     * @post    The position is only a flow target if it is a workshop.
+     */
+    public void removeFlowTarget(IntVector target) {
+        flowTargets.remove(target);
+    }
+
+    /**
+     * Returns the workshop with the cheapest path from the given position.
+     *
+     * @param   start
+     *          The start position.
+     *
+     * @return  The nearest reachable workshop, found with the flow field of all workshops.
+     *          | result.equals(this.getNearestReachable(start, index -> this.getTerrain().getCubeType(
+     *          |       this.getTerrain().getPosition(index)) == Terrain.Type.WORKSHOP))
+     */
+    public Optional<IntVector> getNearestWorkshop(IntVector start) {
+        if (workshops.contains(start))
+            return Optional.of(start);
+        if (workshops.isEmpty() || !this.getTerrain().isValidPosition(start))
+            return Optional.empty();
+        IntList path = this.getFlowField(workshops).getPath(terrain.getIndex(start));
+        if (path == null)
+            return Optional.empty();
+        return Optional.of(terrain.getPosition(path.get(path.size() - 1)));
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Terrain changes">
+    /**
+     * Updates the reachability information after the cube at the given position changed solidity.
+     *
+     * @param   cube
+     *          The position of the cube that changed.
+     *
+     * @post    The reachability of the cube and its neighbours is updated.
+     * @post    The chunks of the cube and its neighbours will be rebuilt before the next hierarchical search.
+     * @post    The flow fields are updated.
+     * @post    The GameObjects in the cube and the cube above it are awake.
+     * @effect  The units in the cube and its neighbours are woken, they may fall.
+     *          | this.wakeUnit(unit)
+     */
+    void terrainChanged(IntVector cube) {
+        // the terrain is changed while it is initialized, the labels are created afterwards.
+        if (reachability != null)
+            reachability.update(cube.getX(), cube.getY(), cube.getZ());
+        if (hierarchicalPathFinder != null)
+            hierarchicalPathFinder.invalidate(terrain.getIndex(cube));
+        if (flowFields != null)
+            for (FlowField field : flowFields.values())
+                field.update(terrain.getIndex(cube));
+        gameObjectIndex.forEachInBox(cube, cube.add(0, 0, 1), awakeGameObjects::add);
+        unitIndex.forEachInBox(cube.add(-1), cube.add(1), this::wakeUnit);
+    }
+    //</editor-fold>
+
     //<editor-fold desc="GameObjects">
     /**
      * Returns a stream of all workshop positions.
@@ -182,21 +1172,21 @@ public class World {
     /**
      * Returns all the logs in the world.
      *
-     * @return  A set of all logs which exist in the world.
+     * @return  A read-only view of all logs which exist in the world, which follows the changes of the world.
      */
-    public  Set<Log> getLogs() {
-        return this.gameObjects.stream().filter(o -> o instanceof Log)
-                .map(Log.class::cast).collect(Collectors.toSet());
+    @Basic
+    public Set<Log> getLogs() {
+        return logsView;
     }
 
     /**
      * Returns all the boulders in the world.
      *
-     * @return  A set of all boulders which exist in the world.
+     * @return  A read-only view of all boulders which exist in the world, which follows the changes of the world.
      */
+    @Basic
     public Set<Boulder> getBoulders() {
-        return this.gameObjects.stream().filter(o -> o instanceof Boulder)
-                .map(Boulder.class::cast).collect(Collectors.toSet());
+        return bouldersView;
     }
 
     /**
@@ -207,10 +1197,17 @@ public class World {
      *
      * @post    The position of the gameObject is set to the given cube.
      * @post    The world contains the gameObject and the cube at the given locations will contain the gameObject.
+     * @post    The gameObject is awake, it falls asleep once it rests on solid ground.
      *
      */
     public void addGameObject(GameObject gameObject) {
         this.gameObjects.add(gameObject);
+        this.awakeGameObjects.add(gameObject);
+        if (gameObject instanceof Log)
+            this.logs.add((Log) gameObject);
+        else if (gameObject instanceof Boulder)
+            this.boulders.add((Boulder) gameObject);
+        this.gameObjectIndex.add(gameObject, gameObject.getPosition());
         this.getTerrain().addObjectToCube(gameObject);
     }
 
@@ -228,6 +1225,52 @@ public class World {
     public void removeGameObject (GameObject object) {
         this.getTerrain().removeObjectFromCube(object);
         gameObjects.remove(object);
+        awakeGameObjects.remove(object);
+        logs.remove(object);
+        boulders.remove(object);
+        gameObjectIndex.remove(object);
+    }
+
+    /**
+     * Updates the position of the given gameObject in the spatial index.
+     *
+     * @param   object
+     *          The gameObject that moved.
+     *
+     * @post    If the gameObject is in the world, the spatial queries use its current position.
+     */
+    void updatePosition(GameObject object) {
+        gameObjectIndex.update(object, object.getPosition());
+    }
+
+    /**
+     * Returns the GameObjects in the cubes of the given box.
+     *
+     * @param   min
+     *          The cube with the smallest coordinates of the box.
+     * @param   max
+     *          The cube with the largest coordinates of the box.
+     *
+     * @return  A list of the GameObjects of the world whose position lies in a cube of the box.
+     *          | result.stream().allMatch(o -> this.getLogs().contains(o) || this.getBoulders().contains(o))
+     */
+    public List<GameObject> getGameObjectsInBox(IntVector min, IntVector max) {
+        return gameObjectIndex.getInBox(min, max);
+    }
+
+    /**
+     * Returns the GameObject of the given type nearest to the given position.
+     *
+     * @param   position
+     *          The position to measure from.
+     * @param   type
+     *          The class of the GameObject.
+     *
+     * @return  The GameObject of the world of the given type with the smallest distance to the position,
+     *          or an empty optional if the world has no such GameObject.
+     */
+    public <T extends GameObject> Optional<T> getNearestGameObject(Vector position, Class<T> type) {
+        return gameObjectIndex.getNearest(position, type::isInstance).map(type::cast);
     }
 
     /**
@@ -262,9 +1305,8 @@ public class World {
      * @post    If the cube at the given position has Logs, one log is removed.
      */
     public void consumeLog(IntVector cubeLoc) throws InvalidPositionException {
-        Set<Log> cubeLogs = this.getTerrain().getLogs(cubeLoc);
-        if (cubeLogs.size() >= 1)
-            removeGameObject(cubeLogs.iterator().next());
+        if (this.getTerrain().getNbLogs(cubeLoc) >= 1)
+            removeGameObject(this.getTerrain().getLogs(cubeLoc).iterator().next());
     }
 
     /**
@@ -276,19 +1318,20 @@ public class World {
      * @post    If the cube at the given position has Boulders, one boulder is removed.
      */
     public void consumeBoulder(IntVector cubeLoc) throws InvalidPositionException {
-        Set<Boulder> boulders = this.getTerrain().getBoulders(cubeLoc);
-        if (boulders.size() >= 1)
-            removeGameObject(boulders.iterator().next());
+        if (this.getTerrain().getNbBoulders(cubeLoc) >= 1)
+            removeGameObject(this.getTerrain().getBoulders(cubeLoc).iterator().next());
     }
     //</editor-fold>
 
     //<editor-fold desc="Factions">
     /**
      * Returns all the active factions of the world.
+     *
+     * @return  A read-only view of the factions, which follows the changes of the world.
      */
     @Basic
     public Set<Faction> getFactions() {
-        return new HashSet<>(this.factions);
+        return factionsView;
     }
 
     /**
@@ -316,7 +1359,7 @@ public class World {
      * @return  The sum of the size of each faction.
      */
     private int getTotalUnits() {
-        return this.getFactions().stream().mapToInt(Faction::getFactionSize).sum();
+        return units.size();
     }
 
     /**
@@ -391,6 +1434,9 @@ public class World {
         if (this.getTotalUnits() >= MAX_UNITS)
             return;
         unit.setWorld(this);
+        unitIndex.add(unit, unit.getPosition());
+        units.add(unit);
+        awakeUnits.add(unit);
         if (factions.size() < MAX_FACTIONS) {
             Faction newFaction = this.addFaction();
             newFaction.addUnit(unit);
@@ -406,10 +1452,12 @@ public class World {
     /**
      * Returns a set of all the units in the world.
      *
-     * @return  A set which is the union of all units from all factions.
+     * @return  A read-only view of the union of all units from all factions,
+     *          which follows the changes of the world.
      */
+    @Basic
     public Set<Unit> getUnits() {
-        return factions.stream().collect(HashSet<Unit>::new, (s, f) -> s.addAll(f.getUnits()), AbstractCollection::addAll);
+        return unitsView;
     }
 
     /**
@@ -419,14 +1467,116 @@ public class World {
      *          The unit to be removed.
      *
      * @post    The unit is removed from its faction and if the faction is empty, the faction is removed from the world.
+     * @post    The unit is removed from the spatial index.
+     * @post    The unit is neither awake nor sleeping.
      */
     public void removeUnit (Unit unit) {
         Faction unitFac = unit.getFaction();
         unitFac.removeUnit(unit);
+        unitIndex.remove(unit);
+        units.remove(unit);
+        awakeUnits.remove(unit);
+        sleepingUnits.cancel(unit);
+        sleepingSince.remove(unit);
         if (unitFac.getFactionSize() <= 0) {
             unitFac.terminate();
             factions.remove(unitFac);
         }
     }
+
+    /**
+     * Updates the position of the given unit in the spatial index.
+     *
+     * @param   unit
+     *          The unit that moved.
+     *
+     * @post    If the unit is in the world, the spatial queries use its current position.
+     * @effect  The unit is woken, it may fall from its new position.
+     *          | this.wakeUnit(unit)
+     */
+    public void updatePosition(Unit unit) {
+        unitIndex.update(unit, unit.getPosition());
+        wakeUnit(unit);
+    }
+
+    /**
+     * Returns the units in the cubes of the given box.
+     *
+     * @param   min
+     *          The cube with the smallest coordinates of the box.
+     * @param   max
+     *          The cube with the largest coordinates of the box.
+     *
+     * @return  A list of the units of the world whose position lies in a cube of the box.
+     *          | result.stream().allMatch(u -> this.getUnits().contains(u))
+     */
+    public List<Unit> getUnitsInBox(IntVector min, IntVector max) {
+        return unitIndex.getInBox(min, max);
+    }
+
+    /**
+     * Returns the units within the given distance of the given position.
+     *
+     * @param   center
+     *          The position to measure from.
+     * @param   radius
+     *          The maximum distance.
+     *
+     * @return  A list of the units of the world whose distance to center is at most radius.
+     *          | result.stream().allMatch(u -> u.getPosition().subtract(center).norm() <= radius)
+     */
+    public List<Unit> getUnitsInRadius(Vector center, double radius) {
+        return unitIndex.getInRadius(center, radius);
+    }
+
+    /**
+     * Returns the unit satisfying the given condition nearest to the given position.
+     *
+     * @param   position
+     *          The position to measure from.
+     * @param   condition
+     *          The condition the unit must satisfy.
+     *
+     * @return  The unit of the world satisfying the condition with the smallest distance to the position,
+     *          or an empty optional if there is none.
+     */
+    public Optional<Unit> getNearestUnit(Vector position, Predicate<? super Unit> condition) {
+        return unitIndex.getNearest(position, condition);
+    }
+
+    /**
+     * Returns the units and GameObjects positioned in the given box.
+     *
+     * @param   min
+     *          The corner of the box with the smallest coordinates, inclusive.
+     * @param   max
+     *          The corner of the box with the largest coordinates, exclusive.
+     *
+     * @return  A set of the units and GameObjects of the world whose position lies in the box.
+     *          | result.stream().allMatch(o -> this.getUnits().contains(o)
+     *          |       || this.getLogs().contains(o) || this.getBoulders().contains(o))
+     */
+    public Set<Object> getObjectsInBox(Vector min, Vector max) {
+        Set<Object> result = new HashSet<>();
+        IntVector minCube = min.toIntVector(), maxCube = max.toIntVector();
+        unitIndex.forEachInBox(minCube, maxCube, unit -> {
+            if (isInBox(unit.getPosition(), min, max))
+                result.add(unit);
+        });
+        gameObjectIndex.forEachInBox(minCube, maxCube, object -> {
+            if (isInBox(object.getPosition(), min, max))
+                result.add(object);
+        });
+        return result;
+    }
+
+    /**
+     * Returns whether the position lies in the box from min (inclusive) to max (exclusive).
+     */
+    private static boolean isInBox(Vector position, Vector min, Vector max) {
+        return min.getX() <= position.getX() && position.getX() < max.getX()
+                && min.getY() <= position.getY() && position.getY() < max.getY()
+                && min.getZ() <= position.getZ() && position.getZ() < max.getZ();
+    }
     //</editor-fold>
 }
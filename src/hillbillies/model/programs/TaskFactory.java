@@ -9,11 +9,11 @@ import hillbillies.model.programs.expression.*;
 import hillbillies.model.programs.statement.*;
 import hillbillies.model.unit.Unit;
 import hillbillies.model.vector.IntVector;
-import hillbillies.model.vector.Vector;
 import hillbillies.part3.programs.ITaskFactory;
 import hillbillies.part3.programs.SourceLocation;
 
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -180,9 +180,9 @@ public class TaskFactory implements ITaskFactory<Expression<?>, Statement, Task>
             final Unit unit = t.getAssignedUnit();
             final World world = unit.getWorld();
             final IntVector unitPos = unit.getPosition().toIntVector();
-            return world.getLogs().stream().map(l -> l.getPosition().toIntVector())
-                    .filter(l -> world.getPathFinder().isReachable(unitPos, l))
-                    .min((Comparator<IntVector>) (l1, l2) -> (int)(l1.distance(unitPos) - l2.distance(unitPos)))
+            if (world.getLogs().isEmpty())
+                throw new TaskInterruptException("no possible logs");
+            return world.getNearestReachable(unitPos, index -> world.getTerrain().getNbLogs(index) > 0)
                     .orElseThrow(() -> new TaskInterruptException("no possible logs"));
         };
     }
@@ -193,10 +193,10 @@ public class TaskFactory implements ITaskFactory<Expression<?>, Statement, Task>
             final Unit unit = t.getAssignedUnit();
             final World world = unit.getWorld();
             final IntVector unitPos = unit.getPosition().toIntVector();
-            return world.getBoulders().stream().map(l -> l.getPosition().toIntVector())
-                    .filter(l -> world.getPathFinder().isReachable(unitPos, l))
-                    .min((Comparator<IntVector>) (l1, l2) -> (int)(l1.distance(unitPos) - l2.distance(unitPos)))
-                    .orElseThrow(() -> new TaskInterruptException("no possible logs"));
+            if (world.getBoulders().isEmpty())
+                throw new TaskInterruptException("no possible boulders");
+            return world.getNearestReachable(unitPos, index -> world.getTerrain().getNbBoulders(index) > 0)
+                    .orElseThrow(() -> new TaskInterruptException("no possible boulders"));
         };
     }
 
@@ -206,9 +206,7 @@ public class TaskFactory implements ITaskFactory<Expression<?>, Statement, Task>
             final Unit unit = t.getAssignedUnit();
             final World world = unit.getWorld();
             final IntVector unitPos = unit.getPosition().toIntVector();
-            return world.getAllWorkshops()
-                    .filter(w -> world.getPathFinder().isReachable(unitPos, w))
-                    .min((Comparator<IntVector>) (w1, w2) -> (int)(w1.distance(unitPos) - w2.distance(unitPos)))
+            return world.getNearestWorkshop(unitPos)
                     .orElseThrow(() -> new TaskInterruptException("no possible workshops"));
         };
     }
@@ -243,12 +241,8 @@ public class TaskFactory implements ITaskFactory<Expression<?>, Statement, Task>
     public Expression<?> createFriend(SourceLocation sourceLocation) {
         return (UnitExpression) t -> {
             final Unit unit = t.getAssignedUnit();
-            final World world = unit.getWorld();
-            final Vector unitPos = unit.getPosition();
             final Faction fac = unit.getFaction();
-            return fac.getUnits().stream().filter( u -> u != unit)
-                    .filter(u -> world.getPathFinder().isReachable(unitPos.toIntVector(), u.getPosition().toIntVector()))
-                    .min((Comparator<Unit>) (u1, u2) -> (int)(u1.getPosition().distance(unitPos)))
+            return getNearestUnit(unit, u -> u != unit && u.getFaction() == fac)
                     .orElseThrow(() -> new TaskInterruptException("no reachable friends found"));
         };
     }
@@ -258,11 +252,7 @@ public class TaskFactory implements ITaskFactory<Expression<?>, Statement, Task>
         return (UnitExpression) task -> {
             final Unit unit = task.getAssignedUnit();
             final Faction fac = unit.getFaction();
-            final World world = unit.getWorld();
-            final Vector unitPos = unit.getPosition();
-            return world.getUnits().stream().filter(u -> u.getFaction() != fac)
-                    .filter(u -> world.getPathFinder().isReachable(unitPos.toIntVector(), u.getPosition().toIntVector()))
-                    .min((Comparator<Unit>) (u1, u2) -> (int)(u1.getPosition().distance(unitPos)))
+            return getNearestUnit(unit, u -> u.getFaction() != fac)
                     .orElseThrow(() -> new TaskInterruptException("no reachable enemies found"));
         };
     }
@@ -271,15 +261,26 @@ public class TaskFactory implements ITaskFactory<Expression<?>, Statement, Task>
     public Expression<?> createAny(SourceLocation sourceLocation) {
         return (UnitExpression) task -> {
             final Unit unit = task.getAssignedUnit();
-            final World world = unit.getWorld();
-            final Vector unitPos = unit.getPosition();
-            return world.getUnits().stream().filter(u -> u != unit)
-                    .filter(u -> world.getPathFinder().isReachable(unitPos.toIntVector(), u.getPosition().toIntVector()))
-                    .min((Comparator<Unit>) (u1, u2) -> (int)(u1.getPosition().distance(unitPos)))
+            return getNearestUnit(unit, u -> u != unit)
                     .orElseThrow(() -> new TaskInterruptException("no other units available"));
         };
     }
 
+    /**
+     * Returns the candidate with the shortest path from the given unit.
+     *
+     * @param   unit
+     *          The unit to search from.
+     * @param   condition
+     *          The condition the chosen unit must satisfy.
+     *
+     * @return  A unit satisfying the condition in the nearest reachable cube,
+     *          or an empty optional if no such unit is reachable.
+     */
+    private static Optional<Unit> getNearestUnit(Unit unit, Predicate<Unit> condition) {
+        return unit.getWorld().getNearestReachableUnit(unit.getPosition().toIntVector(), condition);
+    }
+
     @Override
     public Expression<?> createTrue(SourceLocation sourceLocation) {
         return (BooleanExpression)task -> true;
@@ -14,6 +14,7 @@ import hillbillies.model.vector.IntVector;
 public class NextToPositionExpression implements PositionExpression {
 
     private final PositionExpression pos;
+    private final int[] neighbourBuffer = new int[26];
 
     public NextToPositionExpression(PositionExpression pos) {
         this.pos = pos;
@@ -23,12 +24,24 @@ public class NextToPositionExpression implements PositionExpression {
     public IntVector getValue(Task task) throws TaskInterruptException, TaskErrorException {
         Unit unit = task.getAssignedUnit();
         World world = unit.getWorld();
+        Terrain terrain = world.getTerrain();
         IntVector unitPos = unit.getPosition().toIntVector();
+        IntVector target = pos.getValue(task);
 
-        return Terrain.getNeighbours(pos.getValue(task))
-                .filter(p -> unit.isValidPosition(p)
-                        && unit.isStablePosition(p)
-                        && world.getPathFinder().isReachable(unitPos, p))
-                .findAny().orElseThrow(() ->new TaskInterruptException("nextTo has no possible cubes"));
+        if (!terrain.isValidPosition(target)) {
+            return Terrain.getNeighbours(target)
+                    .filter(p -> terrain.isWalkable(p) && world.isReachable(unitPos, p))
+                    .findAny().orElseThrow(() -> new TaskInterruptException("nextTo has no possible cubes"));
+        }
+
+        int count = terrain.getNeighbours(terrain.getIndex(target), neighbourBuffer);
+        for (int i = 0; i < count; i++) {
+            if (terrain.isWalkable(neighbourBuffer[i])) {
+                IntVector neighbour = terrain.getPosition(neighbourBuffer[i]);
+                if (world.isReachable(unitPos, neighbour))
+                    return neighbour;
+            }
+        }
+        throw new TaskInterruptException("nextTo has no possible cubes");
     }
 }
@@ -55,6 +55,8 @@ abstract class Activity {
      *
      * @effect  If the unit has a tracker, and thus is executing a task, interrupt it.
      *          | if (this.getUnit().hasTracker()) then (this.getUnit().interruptTask())
+     * @effect  Wake the unit, so its timers are up to date.
+     *          | this.getUnit().wakeUp()
      * @effect  Reset The current activity if it isn't the same as the newActivity.
      *          | if (newActivity != this.getUnit().getCurrentActivity())
      *          | then (this.getUnit().getCurrentActivity().reset())
@@ -62,6 +64,7 @@ abstract class Activity {
      *          | this.getUnit().setCurrentActivity(newActivity)
      */
     void switchActivity(Activity newActivity) {
+        getUnit().wakeUp();
         if (getUnit().hasTracker())
             getUnit().interruptTask();
 
@@ -80,6 +83,25 @@ abstract class Activity {
     @Model
     abstract void advanceTime(double dt);
 
+    /**
+     * Returns the time during which advancing this activity only counts down its timer.
+     *
+     * @return  Zero, activities that don't wait do work every step.
+     *          | result == 0
+     */
+    double getIdleTime() {
+        return 0;
+    }
+
+    /**
+     * Counts down the timer of this activity for the given time, without doing the work of advanceTime.
+     *
+     * @param   time
+     *          The time to count down, at most the idle time.
+     */
+    void skipTime(double time) {
+    }
+
     /**
      * Returns whether or not the unit may change Activities.
      */
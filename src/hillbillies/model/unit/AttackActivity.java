@@ -1,6 +1,5 @@
 package hillbillies.model.unit;
 
-import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Model;
 import be.kuleuven.cs.som.annotate.Raw;
 import hillbillies.model.exceptions.InvalidUnitException;
@@ -33,6 +32,8 @@ class AttackActivity extends Activity {
      * @param   other
      *          The unit that is attacked.
      *
+     * @effect  The unit wakes before the timer is changed.
+     *          | this.getUnit().wakeUp()
      * @effect  The unit's will face each other.
      *          | this.getUnit().lookAt(other.getPosition()) &&
      *          | other.lookAt(this.getUnit().getPosition())
@@ -59,6 +60,7 @@ class AttackActivity extends Activity {
         if (!this.canAttack(other))
             throw new InvalidUnitException("Other unit is to far away");
 
+        getUnit().wakeUp();
         attackTimer = ATTACK_DELAY;
 
         getUnit().lookAt(other.getPosition());
@@ -88,6 +90,31 @@ class AttackActivity extends Activity {
         }
     }
 
+    /**
+     * Returns the time until the attack is done.
+     *
+     * @return  The attack timer.
+     *          | result == this.getAttackTimer()
+     */
+    @Override
+    double getIdleTime() {
+        return this.getAttackTimer();
+    }
+
+    /**
+     * Counts down the attack timer.
+     *
+     * @param   time
+     *          The time to count down.
+     *
+     * @post    The attack timer is decreased with the given time.
+     *          | new.attackTimer == this.attackTimer - time
+     */
+    @Override
+    void skipTime(double time) {
+        this.attackTimer -= time;
+    }
+
     /**
      * Returns whether the unit can switch activities, which is always false.
      *
@@ -132,10 +159,13 @@ class AttackActivity extends Activity {
     }
 
     /**
-     * Returns the time left.
+     * Returns the time left, the time the unit is sleeping is already counted down.
+     *
+     * @return  The timer minus the time the unit slept.
+     *          | result == attackTimer - this.getUnit().getSleepTime()
      */
-    @Basic @Model
+    @Model
     private double getAttackTimer() {
-        return this.attackTimer;
+        return this.attackTimer - getUnit().getSleepTime();
     }
 }
@@ -40,7 +40,7 @@ class FollowActivity extends MoveActivity{
      *          then if the unit is standing on a position next to the other unit or the other unit is dead,
      *          the unit will finish following the other unit.
      * @post    Else if the the unit is not standing on the same cube as the other unit,
-     *          the unit will update his target to the cube of the other unit.
+     *          the unit will move his target to the cube of the other unit, reusing the current path.
      *
      * @effect  Advances the parent move activity of this follow activity
      *          | super.advanceTime(dt)
@@ -54,7 +54,7 @@ class FollowActivity extends MoveActivity{
                 getUnit().finishCurrentActivity();
                 return;
             } else if (!other.getPosition().toIntVector().equals(this.getTarget())) {
-                this.updateTarget(other.getPosition().toIntVector());
+                this.moveTarget(other.getPosition().toIntVector());
             }
         }
         super.advanceTime(dt);
@@ -3,6 +3,7 @@ package hillbillies.model.unit;
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Model;
 import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.model.PathRequest;
 import hillbillies.model.Terrain;
 import hillbillies.model.World;
 import hillbillies.model.exceptions.InvalidPositionException;
@@ -10,7 +11,11 @@ import hillbillies.model.exceptions.UnreachableTargetException;
 import hillbillies.model.vector.IntVector;
 import hillbillies.model.vector.Vector;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * The activity for moving to either a distant cube or a neighbour.
@@ -40,6 +45,7 @@ class MoveActivity extends Activity {
      *          |       this.getUnit().getWorld().isValidPosition(position))
      */
     private Deque<IntVector> path; // the path, may be null
+    private PathRequest pathRequest; // the request for the path while it is calculated, may be null
     private Activity pendingActivity; // the activity that is pending to be executed when we reach the next centre.
 
     /**
@@ -61,6 +67,9 @@ class MoveActivity extends Activity {
      * @param   dt
      *          The given time step.
      *
+     * @post    While the requested path is calculated, the unit waits.
+     *          If no path was found, the task of the unit is interrupted and the activity is finished.
+     *          Otherwise the unit starts following the path.
      * @post    If default behavior is enabled the unit has a small chance to start sprinting.
      * @post    If the unit is sprinting, his stamina will drain by 1 point every .1 seconds and his speed will be doubled.
      * @post    If the unit arrives at the centre of a new cube he will receive 1 xp.
@@ -72,6 +81,20 @@ class MoveActivity extends Activity {
      */
     @Override @Model
     void advanceTime(double dt) {
+        if (pathRequest != null) {
+            if (!pathRequest.isDone())
+                return;
+            this.path = pathRequest.getPath();
+            this.pathRequest = null;
+            if (path == null) {
+                if (getUnit().hasTracker())
+                    getUnit().interruptTask();
+                getUnit().finishCurrentActivity();
+            } else {
+                goToNextNeighbour();
+            }
+            return;
+        }
         if (getUnit().isSprinting()) {
             sprintStaminaTimer -= dt;
             if(sprintStaminaTimer <= 0) {
@@ -99,7 +122,8 @@ class MoveActivity extends Activity {
             } else {
                 if (path == null)
                     updateTarget(this.getTarget());
-                goToNextNeighbour();
+                if (path != null)
+                    goToNextNeighbour();
             }
         } else {
             getUnit().setPosition(newPosition);
@@ -134,7 +158,7 @@ class MoveActivity extends Activity {
     /**
      * Resumes the moving activity, which does nothing since the target would only be updated.
      *
-     * @post    The path will be cleared.
+     * @post    The path will be cleared and the path request cancelled.
      *          | new.getPath() == null
      * @post    Clear the target and targetNeighbour.
      *          | new.getTarget() == null && new.getTargetNeighbour() == null
@@ -156,6 +180,7 @@ class MoveActivity extends Activity {
 
         this.sprintStaminaTimer = 0;
         this.path = null;
+        this.cancelPathRequest();
         this.pendingActivity = null;
     }
 
@@ -189,22 +214,61 @@ class MoveActivity extends Activity {
     /**
      * Move to the next neighbour in the path.
      *
-     * @effect  If the next position in the path became unreachable, update the path.
+     * @effect  If the next position in the path became unreachable, repair the path.
+     *          If the path can't be repaired, update the path.
      *          | if ( !this.getUnit().isStablePosition(this.path.getFirst()) ||
      *          |      !this.getUnit().isValidPosition(this.path.getFirst()) )
-     *          | then ( this.updateTarget(this.getTarget() )
+     *          | then ( if (!this.repairPath()) then this.updateTarget(this.getTarget()) )
      *          Otherwise move to the next neighbour.
      *          | else ( this.moveToNeighbour(this.path.pop()) )
      */
     private void goToNextNeighbour() {
         IntVector next = path.getFirst(); // examine next position
         if (!getUnit().isStablePosition(next) || !getUnit().isValidPosition(next)) {
-            this.updateTarget(this.getTarget()); // recalculate path
+            if (repairPath())
+                goToNextNeighbour();
+            else
+                this.updateTarget(this.getTarget()); // recalculate path
             return;
         }
         moveToNeighbour(path.pop());
     }
 
+    /**
+     * Repairs the path by searching a short detour from the unit's cube to the walkable end of the path.
+     *
+     * @return  True if a detour was found, false if the path must be recalculated.
+     *
+     * @post    If a detour was found, the path is the detour followed by the rest of the old path
+     *          after the cube where the detour rejoins it.
+     */
+    private boolean repairPath() {
+        // the longest end of the path that is still walkable, ordered from the start of the path.
+        List<IntVector> walkableEnd = new ArrayList<>();
+        Iterator<IntVector> it = path.descendingIterator();
+        while (it.hasNext()) {
+            IntVector pos = it.next();
+            if (!getUnit().getWorld().getTerrain().isWalkable(pos))
+                break;
+            walkableEnd.add(pos);
+        }
+        if (walkableEnd.isEmpty())
+            return false;
+        Collections.reverse(walkableEnd);
+
+        Deque<IntVector> detour = getUnit().getWorld().getLocalPath(getUnit().getPosition().toIntVector(), walkableEnd);
+        if (detour == null)
+            return false;
+        IntVector rejoin = detour.getLast();
+        while (!path.getFirst().equals(rejoin))
+            path.pop();
+        path.pop();
+        detour.removeFirst(); // the unit's own cube
+        while (!detour.isEmpty())
+            path.push(detour.removeLast());
+        return true;
+    }
+
     /**
      * Moves to specified neighbour cube (must be next to current position).
      *
@@ -274,21 +338,22 @@ class MoveActivity extends Activity {
      * @param   newTarget
      *          The new target to move to.
      *
-     * @post    The route will be calculated.
+     * @post    The route will be requested from the world, if the world calculates it over the next
+     *          time steps the unit waits for it.
      *          | new.getPath() ==
-     *          |       this.getUnit().getPathFinder().getPath(this.getUnit().getPosition().toIntVector(),
-     *          |                                              new.getTarget())
+     *          |       this.getUnit().getWorld().requestPath(this.getUnit().getPosition().toIntVector(),
+     *          |                                             new.getTarget()).getPath()
      *
      * @effect  If the unit is executing a task, and the target is changed, interrupt the task.
      *          | if (this.getUnit().hasTracker()) then ( this.getUnit().interruptTask() )
      * @effect  Set the new Target.
      *          | this.setTarget(newTarget)
-     * @effect  Move to the new next neighbour.
+     * @effect  If the path is known, move to the new next neighbour.
      *          | goToNextNeighbour().
      * @effect  If the target is unreachable and this activity is the current activity, then finish the activity.
      *          | if ( this.getUnit().getCurrentActivity() == this &&
-     *          |      !this.getUnit().getPathFinder().isReachable(this.getUnit().getPosition().toIntVector(),
-     *          |                                                  newTarget) )
+     *          |      !this.getUnit().getWorld().isReachable(this.getUnit().getPosition().toIntVector(),
+     *          |                                             newTarget) )
      *          | then ( this.getUnit().finishCurrentActivity() )
      *
      * @throws  InvalidPositionException
@@ -296,8 +361,8 @@ class MoveActivity extends Activity {
      *          | !this.getUnit().isValidPosition(newTarget)
      *
      * @throws  UnreachableTargetException
-     *          Throws if the target can't be reached.
-     *          | !this.getUnit().getPathFinder().isReachable(this.getUnit().getPosition().toIntVector(), newTarget)
+     *          Throws if the target can't be reached, which is decided without searching a path.
+     *          | !this.getUnit().getWorld().isReachable(this.getUnit().getPosition().toIntVector(), newTarget)
      */
     @Model
     void updateTarget(IntVector newTarget) throws InvalidPositionException, UnreachableTargetException {
@@ -309,8 +374,21 @@ class MoveActivity extends Activity {
 
         this.setTarget(newTarget);
 
+        this.cancelPathRequest();
+        if (!getUnit().getWorld().isReachable(getUnit().getPosition().toIntVector(), newTarget)) {
+            if (getUnit().getCurrentActivity() == this)
+                getUnit().finishCurrentActivity();
+            throw new UnreachableTargetException();
+        }
+
         // get path:
-        this.path = getUnit().getPathFinder().getPath(getUnit().getPosition().toIntVector(), this.getTarget());
+        PathRequest request = getUnit().getWorld().requestPath(getUnit().getPosition().toIntVector(), this.getTarget());
+        if (!request.isDone()) {
+            this.path = null;
+            this.pathRequest = request;
+            return;
+        }
+        this.path = request.getPath();
         if (path == null) {
             if (getUnit().getCurrentActivity() == this)
                 getUnit().finishCurrentActivity();
@@ -330,6 +408,67 @@ class MoveActivity extends Activity {
         goToNextNeighbour();
     }
 
+    /**
+     * Moves the target to a position close to the current target, reusing the current path.
+     *
+     * @param   newTarget
+     *          The new target to move to.
+     *
+     * @effect  If the unit is executing a task, interrupt the task.
+     *          | if (this.getUnit().hasTracker()) then ( this.getUnit().interruptTask() )
+     * @effect  If the new target lies on the current path, the path is cut off after the new target.
+     *          Otherwise, if a short path from the end of the current path to the new target exists,
+     *          it is appended to the path.
+     *          Otherwise update the target.
+     * @post    The target is the new target.
+     *          | new.getTarget() == newTarget
+     *
+     * @throws  InvalidPositionException
+     *          The given target is invalid.
+     *          | !this.getUnit().isValidPosition(newTarget)
+     * @throws  UnreachableTargetException
+     *          Throws if the target can't be reached.
+     *          | !this.getUnit().getWorld().isReachable(this.getUnit().getPosition().toIntVector(), newTarget)
+     */
+    @Model
+    void moveTarget(IntVector newTarget) throws InvalidPositionException, UnreachableTargetException {
+        if (!getUnit().isValidPosition(newTarget))
+            throw new InvalidPositionException(newTarget);
+        if (path == null || this.getTarget() == null || this.getTargetNeighbour() == null) {
+            updateTarget(newTarget);
+            return;
+        }
+
+        if (getUnit().hasTracker())
+            getUnit().interruptTask();
+
+        if (newTarget.equals(this.getTargetNeighbour().toIntVector())) {
+            path.clear();
+        } else if (path.contains(newTarget)) {
+            while (!path.getLast().equals(newTarget))
+                path.removeLast();
+        } else {
+            IntVector end = path.isEmpty() ? this.getTargetNeighbour().toIntVector() : path.getLast();
+            Deque<IntVector> extension = getUnit().getWorld().getLocalPath(end, Collections.singletonList(newTarget));
+            if (extension == null) {
+                updateTarget(newTarget);
+                return;
+            }
+            extension.removeFirst(); // the end of the current path
+            path.addAll(extension);
+        }
+        this.setTarget(newTarget);
+    }
+
+    /**
+     * Cancels the request for the path, if there is one.
+     */
+    private void cancelPathRequest() {
+        if (pathRequest != null)
+            pathRequest.cancel();
+        this.pathRequest = null;
+    }
+
     /**
      * Calculates the speed of the unit.
      *
@@ -8,15 +8,15 @@ import hillbillies.model.exceptions.UnreachableTargetException;
 import hillbillies.model.util.Util;
 import hillbillies.model.vector.IntVector;
 
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 /**
  * The default activity for when an unit isn't doing anything, also manages default behaviour.
  */
 class NoneActivity extends Activity {
 
+    private final int[] neighbourBuffer = new int[26];
+
     /**
      * Initializes the default behavior activity.
      *
@@ -44,7 +44,7 @@ class NoneActivity extends Activity {
      *             - The unit works on a neighbouring cube.
      *             - The unit starts resting.
      *             - The unit attacks an enemy unit that is in range.
-     *             - The unit moves to a random valid position in the world which the unit can reach.
+     *             - The unit moves to a random position in the world which the unit can reach.
      */
     @Override @Model
     void advanceTime(double dt) {
@@ -57,16 +57,17 @@ class NoneActivity extends Activity {
                 int random = Util.randomInt(4);
                 switch (random) {
                     case 0: // work
-                        List<IntVector> neighbours = Terrain.getNeighbours(getUnit().getPosition().toIntVector())
-                                .filter(v -> getUnit().getWorld().getTerrain().isValidPosition(v)).collect(Collectors.toList());
-                        getUnit().workAt(neighbours.get(Util.randomInt(neighbours.size())));
+                        Terrain terrain = getUnit().getWorld().getTerrain();
+                        int count = terrain.getNeighbours(terrain.getIndex(getUnit().getPosition().toIntVector()),
+                                neighbourBuffer);
+                        getUnit().workAt(terrain.getPosition(neighbourBuffer[Util.randomInt(count)]));
                         break;
                     case 1: // rest
                         getUnit().rest();
                         break;
                     case 2: //attack
-                        Set<Unit> units = getUnit().getWorld().getUnits();
-                        for (Unit other : units) {
+                        IntVector cube = getUnit().getPosition().toIntVector();
+                        for (Unit other : getUnit().getWorld().getUnitsInBox(cube.add(-1), cube.add(1))) {
                             if (other.getFaction() != getUnit().getFaction()) {
                                 try {
                                     getUnit().attack(other);
@@ -76,20 +77,13 @@ class NoneActivity extends Activity {
                         }
                         break;
                     case 3: // move
-                        IntVector randPos;
-                        do {
-                            randPos = new IntVector(
-                                    Util.randomInt(getUnit().getWorld().getTerrain().getMaxX()),
-                                    Util.randomInt(getUnit().getWorld().getTerrain().getMaxY()),
-                                    Util.randomInt(getUnit().getWorld().getTerrain().getMaxZ())
-                            );
-                            if (getUnit().isValidPosition(randPos)) {
-                                try {
-                                    getUnit().moveTo(randPos);
-                                    break;
-                                } catch (UnreachableTargetException ignored) {}
-                            }
-                        } while (true);
+                        Optional<IntVector> randPos =
+                                getUnit().getWorld().getRandomReachable(getUnit().getPosition().toIntVector());
+                        if (randPos.isPresent()) {
+                            try {
+                                getUnit().moveTo(randPos.get());
+                            } catch (UnreachableTargetException ignored) {}
+                        }
                         break;
                 }
             }
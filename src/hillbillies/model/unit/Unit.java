@@ -244,6 +244,8 @@ public class Unit {
      *          the unit will take damage equal to 10 times the amount off cubes he has traveled.
      *          Else the unit will keep falling and his position will be set to the new position.
      *
+     * @effect  Wakes the unit, so the time it slept is counted first.
+     *          | this.wakeUp()
      * @effect  Calls the advanceTime() of the current activity.
      *          | this.getCurrentActivity().advanceTime()
      *
@@ -256,6 +258,7 @@ public class Unit {
         if (!isAlive())
             return;
 
+        wakeUp();
         getCurrentActivity().advanceTime(dt);
 
         // rest
@@ -273,6 +276,71 @@ public class Unit {
             this.setCurrentActivity(this.getFallActivity());
         }
     }
+
+    /**
+     * Returns the time during which advancing the unit only counts down its timers.
+     * During this time the world may let the unit sleep instead of advancing it.
+     *
+     * @return  Zero if the unit isn't alive, isn't in a world or isn't on a stable position.
+     *          | if (!this.isAlive() || this.getWorld() == null || !this.isStablePosition(this.getPosition().toIntVector()))
+     *          | then result == 0
+     * @return  Otherwise the smallest of the idle time of the current activity and the time left until the unit rests.
+     *          Both count down the time the unit is sleeping.
+     *          | else result == Math.min(this.getCurrentActivity().getIdleTime(), this.getRestMinuteTimer())
+     */
+    public double getIdleTime() {
+        if (!isAlive() || getWorld() == null || !isStablePosition(getPosition().toIntVector()))
+            return 0;
+        return Math.min(getCurrentActivity().getIdleTime(), getRestMinuteTimer());
+    }
+
+    /**
+     * Counts down the timers of the unit for the time it slept.
+     *
+     * @param   time
+     *          The time the unit slept, at most its idle time.
+     *
+     * @post    The time left until the unit rests is decreased with the given time.
+     *          | new.restMinuteTimer == this.restMinuteTimer - time
+     * @effect  The timer of the current activity is counted down.
+     *          | this.getCurrentActivity().skipTime(time)
+     *
+     * @throws  IllegalArgumentException
+     *          The given time is negative.
+     */
+    public void skipTime(double time) throws IllegalArgumentException {
+        if (time < 0)
+            throw new IllegalArgumentException("Invalid time");
+        if (!isAlive())
+            return;
+
+        setRestMinuteTimer(this.restMinuteTimer - time);
+        getCurrentActivity().skipTime(time);
+    }
+
+    /**
+     * Returns the time the unit has slept, its timers aren't counted down for it yet.
+     *
+     * @return  Zero if the unit isn't in a world, otherwise the time the world let it sleep.
+     *          | if (this.getWorld() == null) then result == 0
+     *          | else result == this.getWorld().getSleepTime(this)
+     */
+    @Model
+    double getSleepTime() {
+        return getWorld() == null ? 0 : getWorld().getSleepTime(this);
+    }
+
+    /**
+     * Wakes the unit if its world lets it sleep, so its timers are up to date before they are used or changed.
+     *
+     * @effect  If the unit is in a world, the world wakes the unit.
+     *          | if (this.getWorld() != null) then (this.getWorld().wakeUnit(this))
+     */
+    @Model
+    void wakeUp() {
+        if (getWorld() != null)
+            getWorld().wakeUnit(this);
+    }
     //</editor-fold>
 
     //<editor-fold desc="Activity">
@@ -388,6 +456,8 @@ public class Unit {
     /**
      * Finishes the current activity.
      *
+     * @effect  Wakes the unit.
+     *          | this.wakeUp()
      * @effect  Marks the unit's tracker done, if it has one.
      *          | if (this.hasTracker()) then (this.getTracker().setDone() && this.setTracker(null))
      * @effect  Resets the currentActivity.
@@ -397,6 +467,7 @@ public class Unit {
      *          | else ( this.setCurrentActivity(this.getNoneActivity()) )
      */
     void finishCurrentActivity() {
+        wakeUp();
         if (this.hasTracker()) {
             this.getTracker().setDone();
             this.setTracker(null);
@@ -420,16 +491,10 @@ public class Unit {
      *          The cube to check.
      *
      * @return  True if the cube is next to a border of the world or if it has any solid neighbours.
-     *          | result == (cube.getX() == 0 || cube.getX() == world.getTerrain().getMaxX() - 1 ||
-     *          |            cube.getY() == 0 || cube.getY() == world.getTerrain().getMaxY() - 1 ||
-     *          |            cube.getZ() == 0 || cube.getZ() == world.getTerrain().getMaxX() - 1 ||
-     *          |            Terrain.getNeighbours(cube).anyMatch(p -> World.isSolid(world.getCubeType(p))))
+     *          | result == world.getTerrain().isStablePosition(cube)
      */
     public static boolean isStablePosition(World world, IntVector cube) {
-        return  cube.getX() == 0 || cube.getX() == world.getTerrain().getMaxX() - 1 ||
-                cube.getY() == 0 || cube.getY() == world.getTerrain().getMaxY() - 1 ||
-                cube.getZ() == 0 || cube.getZ() == world.getTerrain().getMaxZ() - 1 ||
-                Terrain.getNeighbours(cube).anyMatch(p -> Terrain.isSolid(world.getTerrain().getCubeType(p)));
+        return world.getTerrain().isStablePosition(cube);
     }
 
     /**
@@ -501,6 +566,9 @@ public class Unit {
      * @post    The new position is equal to the given position.
      *          | new.getPosition() == position
      *
+     * @effect  If the unit is in a world, its position is updated in the spatial index of the world.
+     *          | if (this.getWorld() != null) then this.getWorld().updatePosition(this)
+     *
      * @throws  InvalidPositionException
      *          When the given position is not valid or not effective.
      *          | !isValidPosition(position) || !isEffectivePosition(position)
@@ -510,6 +578,8 @@ public class Unit {
         if (!isEffectivePosition(position) || !isValidPosition(position.toIntVector()))
             throw new InvalidPositionException(position);
         this.position = position;
+        if (this.getWorld() != null)
+            this.getWorld().updatePosition(this);
     }
 
     /**
@@ -952,7 +1022,7 @@ public class Unit {
      *          | !isValidPosition(target[0], target[1], target[2])
      * @throws  UnreachableTargetException
      *          If the unit can't reach the target.
-     *          | !this.getPathFinder().isReachable(this.getPosition().toIntVector(), target)
+     *          | !this.getWorld().isReachable(this.getPosition().toIntVector(), target)
      */
     public void moveTo(IntVector target)
             throws InvalidPositionException, InvalidActionException, UnreachableTargetException {
@@ -1333,10 +1403,13 @@ public class Unit {
 
     /**
      * Returns the time left until the unit has to rest.
+     * The time the unit is sleeping is already counted down.
+     *
+     * @return  The rest timer minus the time slept.
+     *          | result == restMinuteTimer - this.getSleepTime()
      */
-    @Basic
     private double getRestMinuteTimer() {
-        return this.restMinuteTimer;
+        return this.restMinuteTimer - getSleepTime();
     }
     //</editor-fold>
 
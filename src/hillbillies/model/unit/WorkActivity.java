@@ -63,17 +63,17 @@ class WorkActivity extends Activity {
                     return; // no xp may be added because no job is completed
                 }
             } else if (getUnit().getWorld().getTerrain().getCubeType(getLocation()) == Terrain.Type.WORKSHOP &&
-                       getUnit().getWorld().getTerrain().getLogs(getLocation()).size() >= 1 &&
-                       getUnit().getWorld().getTerrain().getBoulders(getLocation()).size() >= 1) {
+                       getUnit().getWorld().getTerrain().getNbLogs(getLocation()) >= 1 &&
+                       getUnit().getWorld().getTerrain().getNbBoulders(getLocation()) >= 1) {
 
                 getUnit().getWorld().consumeBoulder(getLocation());
                 getUnit().getWorld().consumeLog(getLocation());
 
                 getUnit().setWeight(getUnit().getWeight() + 1);
                 getUnit().setToughness(getUnit().getToughness() + 1);
-            } else if (getUnit().getWorld().getTerrain().getBoulders(getLocation()).size() >= 1) {
+            } else if (getUnit().getWorld().getTerrain().getNbBoulders(getLocation()) >= 1) {
                 getUnit().pickUpGameObject(getUnit().getWorld().getTerrain().getBoulders(getLocation()).iterator().next());
-            } else if (getUnit().getWorld().getTerrain().getLogs(getLocation()).size() >= 1) {
+            } else if (getUnit().getWorld().getTerrain().getNbLogs(getLocation()) >= 1) {
                 getUnit().pickUpGameObject(getUnit().getWorld().getTerrain().getLogs(getLocation()).iterator().next());
             } else if (getUnit().getWorld().getTerrain().getCubeType(getLocation()) == Terrain.Type.TREE) {
                 getUnit().getWorld().getTerrain().breakCube(getLocation());
@@ -89,6 +89,31 @@ class WorkActivity extends Activity {
         }
     }
 
+    /**
+     * Returns the time until the work is done.
+     *
+     * @return  The work timer.
+     *          | result == this.getWorkTimer()
+     */
+    @Override
+    double getIdleTime() {
+        return this.getWorkTimer();
+    }
+
+    /**
+     * Counts down the work timer.
+     *
+     * @param   time
+     *          The time to count down.
+     *
+     * @post    The work timer is decreased with the given time.
+     *          | new.workTimer == this.workTimer - time
+     */
+    @Override
+    void skipTime(double time) {
+        this.workTimer -= time;
+    }
+
     /**
      * Returns whether the unit can switch activities.
      *
@@ -126,6 +151,8 @@ class WorkActivity extends Activity {
      * @post    The work location is set.
      *          | new.getLocation() == location
      *
+     * @effect  Wakes the unit before the timer is changed.
+     *          | this.getUnit().wakeUp()
      * @effect  Makes the unit face in the direction of the working location.
      *          | this.setOrientation(Math.atan2(new.getLocation().subtract(this.getUnit().getPosition()).getY(),
      *          |                                new.getLocation().subtract(this.getUnit().getPosition()).getX()))
@@ -141,6 +168,7 @@ class WorkActivity extends Activity {
         if (!location.isNextTo(getUnit().getPosition().toIntVector()))
             throw new InvalidPositionException("Work location too far: ", location);
 
+        getUnit().wakeUp();
         this.workTimer  = 500.0 / getUnit().getStrength();
         this.location = location;
 
@@ -157,10 +185,13 @@ class WorkActivity extends Activity {
     }
 
     /**
-     * Returns the timer for this work activity.
+     * Returns the time left, the time the unit is sleeping is already counted down.
+     *
+     * @return  The timer minus the time the unit slept.
+     *          | result == workTimer - this.getUnit().getSleepTime()
      */
-    @Basic @Model
+    @Model
     private double getWorkTimer() {
-        return this.workTimer;
+        return this.workTimer - getUnit().getSleepTime();
     }
 }
\ No newline at end of file
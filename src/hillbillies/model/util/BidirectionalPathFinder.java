@@ -0,0 +1,264 @@
+package hillbillies.model.util;
+
+import java.util.Arrays;
+
+/**
+ * Bidirectional A* for 26-connected 3D grids, indexed like GridPathFinder.
+ *
+ * One search grows from the start and one from the target, each expanding the side with the smallest
+ * open set, until the best path through a cube seen by both searches can't be improved.
+ * Both searches use the average of the octile distances to the target and from the start as potential,
+ * which keeps the searches consistent with each other, so the path found is a shortest path.
+ * For long paths both frontiers stay much smaller than the single frontier of A*.
+ *
+ * @invar   The neighbour provider must be effective.
+ */
+public class BidirectionalPathFinder {
+
+    private static final int FORWARD = 0, BACKWARD = 1;
+
+    private final int nbX, nbY, nbXY;
+    private final GridPathFinder.Neighbours neighbours;
+
+    // search state of both directions, only valid for a node if its stamp equals the current generation.
+    private final int[][] stamp = new int[2][];
+    private final float[][] costSoFar = new float[2][];
+    private final int[][] parent = new int[2][];
+    private final boolean[][] closed = new boolean[2][];
+    private int generation;
+
+    // the open sets, entries are the bits of the key followed by the node, stale entries are skipped.
+    private final long[][] heap = new long[2][];
+    private final int[] heapSize = new int[2];
+
+    private final int[] neighbourBuffer = new int[26];
+    private int start, target;
+    private float offset; // added to all keys so they aren't negative
+    private float bestCost;
+    private int meeting;
+    private int expandedNodes;
+
+    /**
+     * Creates a new pathfinder for a grid of the given dimensions.
+     *
+     * @param   nbX
+     *          The size of the grid in the X direction.
+     * @param   nbY
+     *          The size of the grid in the Y direction.
+     * @param   nbZ
+     *          The size of the grid in the Z direction.
+     * @param   neighbours
+     *          The provider of walkable neighbours.
+     *
+     * @throws  IllegalArgumentException
+     *          If the neighbour provider isn't effective.
+     */
+    public BidirectionalPathFinder(int nbX, int nbY, int nbZ, GridPathFinder.Neighbours neighbours)
+            throws IllegalArgumentException {
+        if (neighbours == null)
+            throw new IllegalArgumentException("neighbours isn't effective");
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbXY = nbX * nbY;
+        this.neighbours = neighbours;
+
+        int size = nbXY * nbZ;
+        for (int side = FORWARD; side <= BACKWARD; side++) {
+            stamp[side] = new int[size];
+            costSoFar[side] = new float[size];
+            parent[side] = new int[size];
+            closed[side] = new boolean[size];
+            heap[side] = new long[64];
+        }
+    }
+
+    /**
+     * Calculates a shortest path from start to target.
+     *
+     * @param   start
+     *          The index of the start cube, it doesn't need to be walkable.
+     * @param   target
+     *          The index of the target cube.
+     *
+     * @return  The indices of the cubes on the path, the first element is start and the last is target.
+     *          If no path exists the result is null.
+     */
+    public IntList getPath(int start, int target) {
+        if (start == target) {
+            IntList path = new IntList();
+            path.add(start);
+            return path;
+        }
+        if (!isWalkable(target))
+            return null;
+        newGeneration();
+        this.start = start;
+        this.target = target;
+        this.offset = estimate(start, target) / 2;
+        this.bestCost = Float.POSITIVE_INFINITY;
+        this.meeting = -1;
+        this.expandedNodes = 0;
+        heapSize[FORWARD] = heapSize[BACKWARD] = 0;
+        open(FORWARD, start, 0f, start);
+        open(BACKWARD, target, 0f, target);
+
+        while (heapSize[FORWARD] > 0 && heapSize[BACKWARD] > 0) {
+            // a path through a cube that isn't closed on either side costs at least the sum of the lowest keys.
+            if (topKey(FORWARD) + topKey(BACKWARD) >= bestCost + 2 * offset)
+                break;
+            expand(heapSize[FORWARD] <= heapSize[BACKWARD] ? FORWARD : BACKWARD);
+        }
+        return meeting == -1 ? null : buildPath();
+    }
+
+    /**
+     * Returns the number of nodes expanded by both searches of the last search.
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Expands the node with the lowest key of the given side.
+     */
+    private void expand(int side) {
+        int current = (int) poll(side);
+        if (closed[side][current])
+            return; // a cheaper entry of the node was expanded before
+        closed[side][current] = true;
+        expandedNodes++;
+
+        int other = 1 - side;
+        float currentCost = costSoFar[side][current];
+        int n = neighbours.getNeighbours(current, neighbourBuffer);
+        for (int i = 0; i < n; i++) {
+            int next = neighbourBuffer[i];
+            float newCost = currentCost + GridPathFinder.stepCost(current, next, nbX, nbY);
+            if (stamp[side][next] != generation) {
+                open(side, next, newCost, current);
+            } else if (newCost < costSoFar[side][next]) {
+                costSoFar[side][next] = newCost;
+                parent[side][next] = current;
+                closed[side][next] = false;
+                push(side, next, key(side, next, newCost));
+            } else {
+                continue;
+            }
+            if (stamp[other][next] == generation && newCost + costSoFar[other][next] < bestCost) {
+                bestCost = newCost + costSoFar[other][next];
+                meeting = next;
+            }
+        }
+    }
+
+    //<editor-fold desc="Helpers">
+    /**
+     * Returns whether the target can be walked to, the backward search assumes it can.
+     * A cube without walkable neighbours is only reached by a start next to it, which the forward search finds.
+     */
+    private boolean isWalkable(int node) {
+        int n = neighbours.getNeighbours(node, neighbourBuffer);
+        if (n == 0)
+            return true;
+        int neighbour = neighbourBuffer[0];
+        n = neighbours.getNeighbours(neighbour, neighbourBuffer);
+        for (int i = 0; i < n; i++)
+            if (neighbourBuffer[i] == node)
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the key of a node, the cost so far plus the potential of the side, plus the offset.
+     */
+    private float key(int side, int node, float cost) {
+        float potential = (estimate(node, target) - estimate(start, node)) / 2;
+        return cost + (side == FORWARD ? potential : -potential) + offset;
+    }
+
+    private float topKey(int side) {
+        return Float.intBitsToFloat((int) (heap[side][0] >>> 32));
+    }
+
+    private float estimate(int a, int b) {
+        return (float) Heuristic.OCTILE.estimate(a % nbX - b % nbX, (a / nbX) % nbY - (b / nbX) % nbY,
+                a / nbXY - b / nbXY);
+    }
+
+    private IntList buildPath() {
+        IntList path = new IntList();
+        for (int current = meeting; current != start; current = parent[FORWARD][current])
+            path.add(current);
+        path.add(start);
+        // reverse, so the path starts at start.
+        for (int i = 0, j = path.size() - 1; i < j; i++, j--) {
+            int tmp = path.get(i);
+            path.set(i, path.get(j));
+            path.set(j, tmp);
+        }
+        for (int current = meeting; current != target; ) {
+            current = parent[BACKWARD][current];
+            path.add(current);
+        }
+        return path;
+    }
+
+    private void open(int side, int node, float cost, int from) {
+        stamp[side][node] = generation;
+        closed[side][node] = false;
+        costSoFar[side][node] = cost;
+        parent[side][node] = from;
+        push(side, node, key(side, node, cost));
+    }
+
+    private void newGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp[FORWARD], 0);
+            Arrays.fill(stamp[BACKWARD], 0);
+            generation = 1;
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Heap">
+    /**
+     * Adds an entry to the open set of a side, the bits of a non negative float are ordered like the float itself.
+     */
+    private void push(int side, int node, float key) {
+        long[] h = heap[side];
+        if (heapSize[side] == h.length)
+            h = heap[side] = Arrays.copyOf(h, h.length * 2);
+        long entry = ((long) Float.floatToIntBits(Math.max(0f, key)) << 32) | node;
+        int i = heapSize[side]++;
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (h[p] <= entry)
+                break;
+            h[i] = h[p];
+            i = p;
+        }
+        h[i] = entry;
+    }
+
+    private long poll(int side) {
+        long[] h = heap[side];
+        long result = h[0];
+        int size = --heapSize[side];
+        long last = h[size];
+        int i = 0, half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && h[child + 1] < h[child])
+                child++;
+            if (last <= h[child])
+                break;
+            h[i] = h[child];
+            i = child;
+        }
+        if (size > 0)
+            h[i] = last;
+        return result;
+    }
+    //</editor-fold>
+}
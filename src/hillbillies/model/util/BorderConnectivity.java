@@ -0,0 +1,426 @@
+package hillbillies.model.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Keeps track of which solid cubes are connected to the border of the world
+ * through other directly adjacent solid cubes.
+ *
+ * This is a drop-in replacement for hillbillies.util.ConnectedToBorder that works on packed
+ * cube indices (x + y * nbX + z * nbX * nbY) and reuses its work arrays between calls.
+ * Initially the entire world is solid.
+ *
+ * For each connected solid cube the distance (in solid steps) to the border is kept.
+ * When a cube becomes passable only the cubes that lose all their neighbours one step closer
+ * to the border have to be recomputed, so the cost of a change is proportional to the affected
+ * region instead of the whole solid mass.
+ *
+ * @invar   A solid cube is connected to the border if and only if a path of directly adjacent
+ *          solid cubes exists from the cube to a cube at the border.
+ * @invar   The distance of each connected solid cube is the length of the shortest such path,
+ *          the distance of any other cube is UNREACHABLE.
+ */
+public class BorderConnectivity {
+
+    /**
+     * The distance of cubes that aren't connected to the border.
+     */
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final byte STATE_CANDIDATE = 1;
+    private static final byte STATE_AFFECTED = 2;
+
+    private final int nbX, nbY, nbZ, nbXY;
+
+    private final boolean[] passable;
+    private final int[] distance;
+
+    // reusable work space, a cube's state is only valid if its stamp equals the current generation.
+    private final int[] stamp;
+    private final byte[] state;
+    private int generation;
+    private final IntList queue;
+    private final IntList level;
+    private final IntList nextLevel;
+    private final int[] neighbours = new int[6];
+
+    /**
+     * Creates a new tracker for a world of the given dimensions where all cubes are solid.
+     *
+     * @param   nbX
+     *          The size of the world in the X direction.
+     * @param   nbY
+     *          The size of the world in the Y direction.
+     * @param   nbZ
+     *          The size of the world in the Z direction.
+     */
+    public BorderConnectivity(int nbX, int nbY, int nbZ) {
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.nbXY = nbX * nbY;
+        int size = nbXY * nbZ;
+        this.passable = new boolean[size];
+        this.distance = new int[size];
+        this.stamp = new int[size];
+        this.state = new byte[size];
+        this.generation = 0;
+        this.queue = new IntList();
+        this.level = new IntList();
+        this.nextLevel = new IntList();
+
+        for (int index = 0; index < size; index++) {
+            int x = index % nbX, y = (index / nbX) % nbY, z = index / nbXY;
+            distance[index] = Math.min(Math.min(Math.min(x, nbX - 1 - x), Math.min(y, nbY - 1 - y)),
+                    Math.min(z, nbZ - 1 - z));
+        }
+    }
+
+    //<editor-fold desc="Queries">
+    /**
+     * Returns whether the cube at the given position is a solid cube that is connected
+     * to the border of the world through other directly adjacent solid cubes.
+     */
+    public boolean isSolidConnectedToBorder(int x, int y, int z) {
+        return isSolidConnectedToBorder(getIndex(x, y, z));
+    }
+
+    /**
+     * Returns whether the cube at the given index is a solid cube that is connected to the border.
+     */
+    public boolean isSolidConnectedToBorder(int index) {
+        return !passable[index] && distance[index] != UNREACHABLE;
+    }
+
+    /**
+     * Returns the packed index of the given position.
+     *
+     * @return  x + y * nbX + z * nbX * nbY
+     */
+    public int getIndex(int x, int y, int z) {
+        return x + y * nbX + z * nbXY;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Updates">
+    /**
+     * Makes all cubes matching the given predicate passable at once.
+     * A single breadth-first search from the solid border cubes marks all connected solids,
+     * so this takes time linear in the size of the world.
+     *
+     * @param   isPassable
+     *          The predicate deciding which cube indices are passable.
+     *
+     * @pre     All cubes are still solid.
+     *
+     * @post    Each cube matching the predicate is passable and each other cube is solid.
+     *
+     * @return  The indices of all solid cubes that aren't connected to the border.
+     */
+    public IntList initialize(IntPredicate isPassable) {
+        queue.clear();
+        for (int index = 0; index < passable.length; index++) {
+            passable[index] = isPassable.test(index);
+            distance[index] = UNREACHABLE;
+            if (!passable[index] && isBorder(index)) {
+                distance[index] = 0;
+                queue.add(index);
+            }
+        }
+        for (int head = 0; head < queue.size(); head++) {
+            int cube = queue.get(head);
+            int n = getSolidNeighbours(cube);
+            for (int i = 0; i < n; i++) {
+                int next = neighbours[i];
+                if (distance[next] == UNREACHABLE) {
+                    distance[next] = distance[cube] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+
+        IntList disconnected = new IntList();
+        for (int index = 0; index < passable.length; index++) {
+            if (!passable[index] && distance[index] == UNREACHABLE)
+                disconnected.add(index);
+        }
+        return disconnected;
+    }
+
+    /**
+     * Makes the cube at the given position passable and returns the cubes that are
+     * no longer connected to the border of the world because of this change.
+     *
+     * @param   x
+     *          The x-coordinate of the cube to make passable.
+     * @param   y
+     *          The y-coordinate of the cube to make passable.
+     * @param   z
+     *          The z-coordinate of the cube to make passable.
+     *
+     * @return  The coordinates {x, y, z} of all solid cubes that were connected to the border
+     *          before this change and aren't connected anymore.
+     *          Cubes that were already disconnected are never reported again.
+     */
+    public List<int[]> changeSolidToPassable(int x, int y, int z) {
+        IntList changed = changeSolidToPassable(getIndex(x, y, z));
+        if (changed.isEmpty())
+            return Collections.emptyList();
+        return toCoordinates(changed);
+    }
+
+    /**
+     * Makes the cube at the given index passable and returns the indices of the cubes that are
+     * no longer connected to the border of the world because of this change.
+     *
+     * @param   index
+     *          The index of the cube to make passable.
+     *
+     * @return  The indices of the cubes that became disconnected.
+     */
+    public IntList changeSolidToPassable(int index) {
+        IntList changed = new IntList();
+        if (passable[index])
+            return changed;
+        int removedDistance = distance[index];
+        passable[index] = true;
+        distance[index] = UNREACHABLE;
+        if (removedDistance == UNREACHABLE)
+            return changed; // all solid neighbours are already disconnected.
+
+        IntList affected = findAffected(index, removedDistance);
+        if (affected.isEmpty())
+            return changed;
+        recompute(affected);
+
+        for (int i = 0; i < affected.size(); i++) {
+            if (distance[affected.get(i)] == UNREACHABLE)
+                changed.add(affected.get(i));
+        }
+        return changed;
+    }
+
+    /**
+     * Makes the cube at the given position solid and returns the cubes that became
+     * connected to the border of the world because of this change.
+     *
+     * @param   x
+     *          The x-coordinate of the cube to make solid.
+     * @param   y
+     *          The y-coordinate of the cube to make solid.
+     * @param   z
+     *          The z-coordinate of the cube to make solid.
+     *
+     * @return  The coordinates {x, y, z} of the cubes that became connected.
+     *          If not empty, this includes the given cube.
+     */
+    public List<int[]> changePassableToSolid(int x, int y, int z) {
+        int index = getIndex(x, y, z);
+        if (!passable[index])
+            return Collections.emptyList();
+        passable[index] = false;
+
+        int best = isBorder(index) ? 0 : UNREACHABLE;
+        int n = getSolidNeighbours(index);
+        for (int i = 0; i < n; i++) {
+            if (distance[neighbours[i]] != UNREACHABLE)
+                best = Math.min(best, distance[neighbours[i]] + 1);
+        }
+        distance[index] = best;
+        if (best == UNREACHABLE)
+            return Collections.emptyList();
+
+        // propagate the shorter distances, cubes that were unreachable became connected.
+        IntList connected = new IntList();
+        connected.add(index);
+        queue.clear();
+        queue.add(index);
+        for (int head = 0; head < queue.size(); head++) {
+            int cube = queue.get(head);
+            n = getSolidNeighbours(cube);
+            for (int i = 0; i < n; i++) {
+                int next = neighbours[i];
+                if (distance[next] > distance[cube] + 1) {
+                    if (distance[next] == UNREACHABLE)
+                        connected.add(next);
+                    distance[next] = distance[cube] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+        return toCoordinates(connected);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Helpers">
+    /**
+     * Finds the cubes whose shortest paths to the border all went through the removed cube.
+     * The cubes are visited level by level, a cube is affected if none of its solid neighbours
+     * one step closer to the border is unaffected.
+     *
+     * @param   removed
+     *          The index of the cube that became passable.
+     * @param   removedDistance
+     *          The distance the removed cube had.
+     *
+     * @return  The affected cubes, marked as affected in the current generation.
+     */
+    private IntList findAffected(int removed, int removedDistance) {
+        newGeneration();
+        IntList affected = new IntList();
+        level.clear();
+        addCandidates(removed, removedDistance + 1, level);
+
+        while (!level.isEmpty()) {
+            nextLevel.clear();
+            for (int i = 0; i < level.size(); i++) {
+                int cube = level.get(i);
+                if (!hasSupport(cube)) {
+                    state[cube] = STATE_AFFECTED;
+                    affected.add(cube);
+                    addCandidates(cube, distance[cube] + 1, nextLevel);
+                }
+            }
+            level.clear();
+            level.addAll(nextLevel, 0);
+        }
+        return affected;
+    }
+
+    /**
+     * Adds the solid neighbours of the given cube with the given distance to the candidates.
+     */
+    private void addCandidates(int cube, int candidateDistance, IntList candidates) {
+        int n = getSolidNeighbours(cube);
+        for (int i = 0; i < n; i++) {
+            int next = neighbours[i];
+            if (distance[next] == candidateDistance && stamp[next] != generation) {
+                stamp[next] = generation;
+                state[next] = STATE_CANDIDATE;
+                candidates.add(next);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the cube has an unaffected solid neighbour one step closer to the border.
+     */
+    private boolean hasSupport(int cube) {
+        int n = getSolidNeighbours(cube);
+        for (int i = 0; i < n; i++) {
+            int next = neighbours[i];
+            if (distance[next] == distance[cube] - 1 && !isAffected(next))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean isAffected(int cube) {
+        return stamp[cube] == generation && state[cube] == STATE_AFFECTED;
+    }
+
+    /**
+     * Recomputes the distance of the affected cubes, starting from their unaffected neighbours.
+     * Affected cubes that can't be reached get the distance UNREACHABLE.
+     *
+     * @param   affected
+     *          The affected cubes, marked as affected in the current generation.
+     */
+    private void recompute(IntList affected) {
+        // find the best distance each affected cube can get from an unaffected neighbour.
+        long[] seeds = new long[affected.size()];
+        int nbSeeds = 0;
+        for (int i = 0; i < affected.size(); i++) {
+            int cube = affected.get(i);
+            int best = UNREACHABLE;
+            int n = getSolidNeighbours(cube);
+            for (int j = 0; j < n; j++) {
+                int next = neighbours[j];
+                if (!isAffected(next) && distance[next] != UNREACHABLE)
+                    best = Math.min(best, distance[next] + 1);
+            }
+            distance[cube] = best;
+            if (best != UNREACHABLE)
+                seeds[nbSeeds++] = ((long) best << 32) | cube;
+        }
+        Arrays.sort(seeds, 0, nbSeeds);
+
+        // merge the sorted seeds with a breadth-first queue, both are in increasing distance order.
+        queue.clear();
+        int head = 0, nextSeed = 0;
+        while (nextSeed < nbSeeds || head < queue.size()) {
+            int cube;
+            if (head >= queue.size() || (nextSeed < nbSeeds
+                    && (int) (seeds[nextSeed] >>> 32) <= distance[queue.get(head)])) {
+                long seed = seeds[nextSeed++];
+                cube = (int) seed;
+                if (distance[cube] != (int) (seed >>> 32))
+                    continue; // improved since it was seeded, it is in the queue.
+            } else {
+                cube = queue.get(head++);
+            }
+            int n = getSolidNeighbours(cube);
+            for (int i = 0; i < n; i++) {
+                int next = neighbours[i];
+                if (isAffected(next) && distance[next] > distance[cube] + 1) {
+                    distance[next] = distance[cube] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private boolean isBorder(int index) {
+        int x = index % nbX;
+        int y = (index / nbX) % nbY;
+        int z = index / nbXY;
+        return x == 0 || x == nbX - 1 || y == 0 || y == nbY - 1 || z == 0 || z == nbZ - 1;
+    }
+
+    /**
+     * Stores the indices of the directly adjacent solid cubes in the neighbours array.
+     *
+     * @return  The number of solid neighbours.
+     */
+    private int getSolidNeighbours(int index) {
+        int x = index % nbX;
+        int y = (index / nbX) % nbY;
+        int z = index / nbXY;
+        int n = 0;
+        if (x > 0 && !passable[index - 1])
+            neighbours[n++] = index - 1;
+        if (x < nbX - 1 && !passable[index + 1])
+            neighbours[n++] = index + 1;
+        if (y > 0 && !passable[index - nbX])
+            neighbours[n++] = index - nbX;
+        if (y < nbY - 1 && !passable[index + nbX])
+            neighbours[n++] = index + nbX;
+        if (z > 0 && !passable[index - nbXY])
+            neighbours[n++] = index - nbXY;
+        if (z < nbZ - 1 && !passable[index + nbXY])
+            neighbours[n++] = index + nbXY;
+        return n;
+    }
+
+    private List<int[]> toCoordinates(IntList indices) {
+        List<int[]> result = new ArrayList<>(indices.size());
+        for (int i = 0; i < indices.size(); i++) {
+            int index = indices.get(i);
+            result.add(new int[] {index % nbX, (index / nbX) % nbY, index / nbXY});
+        }
+        return result;
+    }
+
+    private void newGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+    //</editor-fold>
+}
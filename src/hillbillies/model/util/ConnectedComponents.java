@@ -0,0 +1,539 @@
+package hillbillies.model.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps connected-component labels for the walkable cubes of a 3D grid.
+ * Two walkable cubes are connected when they are one of each other's 26 neighbours.
+ *
+ * The labels are updated incrementally: merging components relabels the smallest ones,
+ * splitting a component runs interleaved searches so only the pieces that break off are relabelled.
+ * Each component keeps the list of its cubes, so a cube of a component can be picked in constant time.
+ *
+ * @invar   Each walkable cube has a label different from NO_LABEL, each other cube has NO_LABEL.
+ * @invar   Two walkable cubes have the same label if and only if there is a path between them.
+ */
+public class ConnectedComponents {
+
+    /**
+     * Interface deciding which cubes of the grid are walkable.
+     */
+    @FunctionalInterface
+    public interface Walkable {
+        boolean isWalkable(int x, int y, int z);
+    }
+
+    /**
+     * The label of cubes that aren't walkable.
+     */
+    public static final int NO_LABEL = 0;
+
+    private static final int[][] OFFSETS;
+    static {
+        OFFSETS = new int[26][];
+        int i = 0;
+        for (int dz = -1; dz <= 1; dz++)
+            for (int dy = -1; dy <= 1; dy++)
+                for (int dx = -1; dx <= 1; dx++)
+                    if (dx != 0 || dy != 0 || dz != 0)
+                        OFFSETS[i++] = new int[] {dx, dy, dz};
+    }
+
+    private final int nbX, nbY, nbZ, nbXY;
+    private final Walkable walkable;
+
+    /**
+     * The label of each cube, indexed by x + y * nbX + z * nbX * nbY.
+     */
+    private final int[] labels;
+
+    /**
+     * The cubes of each label, and the position of each walkable cube in the list of its label.
+     */
+    private IntList[] members;
+    private final int[] memberPositions;
+    private int nextLabel;
+    private final IntList freeLabels;
+
+    // scratch space for the updates and the searches.
+    private final int[] neighbours = new int[26];
+    private final int[] affected = new int[27];
+    private final int[] seeds = new int[26];
+    private final boolean[] handled = new boolean[27 * 26];
+    private final IntList added, removed, candidates, group;
+    private final int[] searchMark;
+    private final int[] searchStamp;
+    private int generation;
+    private final IntList queue;
+
+    /**
+     * Creates the labels for the given grid.
+     *
+     * @param   nbX
+     *          The size of the grid in the X direction.
+     * @param   nbY
+     *          The size of the grid in the Y direction.
+     * @param   nbZ
+     *          The size of the grid in the Z direction.
+     * @param   walkable
+     *          The predicate deciding which cubes are walkable.
+     *
+     * @throws  IllegalArgumentException
+     *          If the walkable predicate isn't effective.
+     */
+    public ConnectedComponents(int nbX, int nbY, int nbZ, Walkable walkable) throws IllegalArgumentException {
+        if (walkable == null)
+            throw new IllegalArgumentException("walkable isn't effective");
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.nbXY = nbX * nbY;
+        this.walkable = walkable;
+
+        this.labels = new int[nbXY * nbZ];
+        this.memberPositions = new int[labels.length];
+        this.searchMark = new int[labels.length];
+        this.searchStamp = new int[labels.length];
+        this.members = new IntList[16];
+        this.nextLabel = NO_LABEL + 1;
+        this.freeLabels = new IntList();
+        this.queue = new IntList();
+        this.added = new IntList();
+        this.removed = new IntList();
+        this.candidates = new IntList();
+        this.group = new IntList();
+
+        relabelAll();
+    }
+
+    /**
+     * Recomputes all labels from scratch.
+     */
+    public void relabelAll() {
+        for (int label = NO_LABEL + 1; label < nextLabel; label++)
+            members[label].clear();
+        nextLabel = NO_LABEL + 1;
+        freeLabels.clear();
+        for (int i = 0; i < labels.length; i++)
+            labels[i] = isWalkable(i) ? -1 : NO_LABEL;
+
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] == -1) {
+                int label = newLabel();
+                addMember(label, i);
+                queue.clear();
+                queue.add(i);
+                for (int head = 0; head < queue.size(); head++) {
+                    int n = getNeighbours(queue.get(head));
+                    for (int j = 0; j < n; j++) {
+                        int next = neighbours[j];
+                        if (labels[next] == -1) {
+                            addMember(label, next);
+                            queue.add(next);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    //<editor-fold desc="Queries">
+    /**
+     * Returns the label of the given cube, or NO_LABEL if the cube isn't walkable.
+     */
+    public int getLabel(int x, int y, int z) {
+        return labels[getIndex(x, y, z)];
+    }
+
+    /**
+     * Returns the label of the component a path from the given cube enters first.
+     *
+     * @return  The label of the cube if it is walkable, otherwise the label of one of its walkable neighbours,
+     *          or NO_LABEL if it has none.
+     */
+    public int getStartLabel(int x, int y, int z) {
+        int start = getIndex(x, y, z);
+        if (labels[start] != NO_LABEL)
+            return labels[start];
+        int n = getNeighbours(start);
+        for (int i = 0; i < n; i++) {
+            if (labels[neighbours[i]] != NO_LABEL)
+                return labels[neighbours[i]];
+        }
+        return NO_LABEL;
+    }
+
+    /**
+     * Returns the cube of the given component with the given rank.
+     * The order of the cubes is unspecified and changes when the component changes.
+     *
+     * @param   label
+     *          The label of the component.
+     * @param   rank
+     *          The rank of the cube, between 0 and the size of the component.
+     *
+     * @return  The index of the cube, or -1 if the component has no cube with that rank.
+     */
+    public int getCube(int label, int rank) {
+        if (rank < 0 || rank >= getSize(label))
+            return -1;
+        return members[label].get(rank);
+    }
+
+    /**
+     * Returns the number of cubes in the component with the given label.
+     */
+    public int getSize(int label) {
+        return label <= NO_LABEL || label >= nextLabel ? 0 : members[label].size();
+    }
+
+    /**
+     * Returns whether the given position lies within the grid.
+     */
+    public boolean isValidPosition(int x, int y, int z) {
+        return x >= 0 && x < nbX && y >= 0 && y < nbY && z >= 0 && z < nbZ;
+    }
+
+    /**
+     * Returns whether a path exists from the first to the second cube.
+     * The start cube doesn't need to be walkable, but the path must leave it through a walkable neighbour.
+     *
+     * @return  True if both cubes are equal, or if the target is walkable and the start
+     *          or one of its walkable neighbours has the same label as the target.
+     */
+    public boolean isConnected(int x1, int y1, int z1, int x2, int y2, int z2) {
+        if (x1 == x2 && y1 == y2 && z1 == z2)
+            return true;
+        int target = getLabel(x2, y2, z2);
+        if (target == NO_LABEL)
+            return false;
+        int start = getIndex(x1, y1, z1);
+        if (labels[start] != NO_LABEL)
+            return labels[start] == target;
+        int n = getNeighbours(start);
+        for (int i = 0; i < n; i++) {
+            if (labels[neighbours[i]] == target)
+                return true;
+        }
+        return false;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Updates">
+    /**
+     * Updates the labels after the cube at the given position changed.
+     * The walkability of the cube itself and of its 26 neighbours is re-evaluated.
+     *
+     * @param   x
+     *          The x coordinate of the changed cube.
+     * @param   y
+     *          The y coordinate of the changed cube.
+     * @param   z
+     *          The z coordinate of the changed cube.
+     */
+    public void update(int x, int y, int z) {
+        int center = getIndex(x, y, z);
+        int count = getNeighbours(center);
+        System.arraycopy(neighbours, 0, affected, 0, count);
+        affected[count++] = center;
+
+        added.clear();
+        removed.clear();
+        for (int i = 0; i < count; i++) {
+            int index = affected[i];
+            boolean now = isWalkable(index);
+            int old = labels[index];
+            if (old != NO_LABEL && !now) {
+                removeMember(index);
+                removed.add(index);
+            } else if (old == NO_LABEL && now) {
+                added.add(index);
+            }
+        }
+
+        for (int i = 0; i < added.size(); i++)
+            attach(added.get(i));
+
+        if (!removed.isEmpty())
+            split();
+    }
+
+    /**
+     * Gives a newly walkable cube a label, merging all components it connects.
+     */
+    private void attach(int index) {
+        int n = getNeighbours(index);
+        int target = NO_LABEL;
+        for (int i = 0; i < n; i++) {
+            int label = labels[neighbours[i]];
+            if (label != NO_LABEL && (target == NO_LABEL || getSize(label) > getSize(target)))
+                target = label;
+        }
+        if (target == NO_LABEL)
+            target = newLabel();
+        addMember(target, index);
+
+        // relabel the other, smaller, components.
+        System.arraycopy(neighbours, 0, seeds, 0, n);
+        for (int i = 0; i < n; i++) {
+            int seed = seeds[i];
+            int label = labels[seed];
+            if (label != NO_LABEL && label != target)
+                relabel(seed, label, target);
+        }
+    }
+
+    /**
+     * Relabels the cubes with the given label connected to the seed.
+     */
+    private void relabel(int seed, int from, int to) {
+        queue.clear();
+        queue.add(seed);
+        moveMember(seed, to);
+        for (int head = 0; head < queue.size(); head++) {
+            int n = getNeighbours(queue.get(head));
+            for (int i = 0; i < n; i++) {
+                int next = neighbours[i];
+                if (labels[next] == from) {
+                    moveMember(next, to);
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * A search used while detecting splits, searches are merged when they meet.
+     */
+    private static class Search {
+        final int id;
+        final IntList visited = new IntList();
+        final IntList frontier = new IntList();
+        int head = 0;
+        Search parent = this;
+
+        Search(int id) {
+            this.id = id;
+        }
+
+        Search find() {
+            Search root = this;
+            while (root.parent != root)
+                root = root.parent;
+            Search cur = this;
+            while (cur.parent != root) {
+                Search next = cur.parent;
+                cur.parent = root;
+                cur = next;
+            }
+            return root;
+        }
+
+        boolean isExhausted() {
+            return head >= frontier.size();
+        }
+    }
+
+    /**
+     * Detects whether the components next to the removed cubes have split,
+     * and gives every piece that broke off a new label.
+     */
+    private void split() {
+        // collect the walkable neighbours of the removed cubes.
+        candidates.clear();
+        newGeneration();
+        for (int i = 0; i < removed.size(); i++) {
+            int n = getNeighbours(removed.get(i));
+            for (int j = 0; j < n; j++) {
+                int next = neighbours[j];
+                if (labels[next] != NO_LABEL && searchStamp[next] != generation) {
+                    searchStamp[next] = generation;
+                    candidates.add(next);
+                }
+            }
+        }
+
+        // group the candidates by label, only labels with multiple candidates can have split.
+        Arrays.fill(handled, 0, candidates.size(), false);
+        for (int i = 0; i < candidates.size(); i++) {
+            if (handled[i])
+                continue;
+            int label = labels[candidates.get(i)];
+            group.clear();
+            for (int j = i; j < candidates.size(); j++) {
+                if (!handled[j] && labels[candidates.get(j)] == label) {
+                    handled[j] = true;
+                    group.add(candidates.get(j));
+                }
+            }
+            if (group.size() > 1)
+                splitComponent(label, group);
+        }
+    }
+
+    /**
+     * Runs interleaved searches from each seed in the given component,
+     * stops as soon as at most one group of searches is still running.
+     */
+    private void splitComponent(int label, IntList seeds) {
+        newGeneration();
+        List<Search> searches = new ArrayList<>();
+        for (int i = 0; i < seeds.size(); i++) {
+            int seed = seeds.get(i);
+            if (searchStamp[seed] == generation)
+                continue;
+            Search search = new Search(searches.size());
+            searchStamp[seed] = generation;
+            searchMark[seed] = search.id;
+            search.visited.add(seed);
+            search.frontier.add(seed);
+            searches.add(search);
+        }
+
+        while (true) {
+            List<Search> roots = new ArrayList<>();
+            List<Search> live = new ArrayList<>();
+            for (Search search : searches) {
+                if (search.find() == search) {
+                    roots.add(search);
+                    if (!search.isExhausted())
+                        live.add(search);
+                }
+            }
+            if (roots.size() <= 1)
+                return; // still connected
+            if (live.size() <= 1) {
+                // all exhausted roots are separate components.
+                Search keep = live.isEmpty() ? null : live.get(0);
+                if (keep == null) {
+                    for (Search root : roots)
+                        if (keep == null || root.visited.size() > keep.visited.size())
+                            keep = root;
+                }
+                for (Search root : roots) {
+                    if (root != keep) {
+                        int newLabel = newLabel();
+                        for (int i = 0; i < root.visited.size(); i++)
+                            moveMember(root.visited.get(i), newLabel);
+                    }
+                }
+                return;
+            }
+
+            for (Search search : live) {
+                Search root = search.find();
+                if (root != search || root.isExhausted())
+                    continue; // merged during this round
+                int current = root.frontier.get(root.head++);
+                int n = getNeighbours(current);
+                for (int i = 0; i < n; i++) {
+                    int next = neighbours[i];
+                    if (labels[next] == NO_LABEL)
+                        continue;
+                    if (searchStamp[next] == generation) {
+                        Search other = searches.get(searchMark[next]).find();
+                        if (other != root)
+                            root = merge(root, other);
+                    } else {
+                        searchStamp[next] = generation;
+                        searchMark[next] = root.id;
+                        root.visited.add(next);
+                        root.frontier.add(next);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges two searches, the search with the most visited cubes becomes the root.
+     */
+    private static Search merge(Search a, Search b) {
+        Search big = a.visited.size() >= b.visited.size() ? a : b;
+        Search small = big == a ? b : a;
+        small.parent = big;
+        big.visited.addAll(small.visited, 0);
+        big.frontier.addAll(small.frontier, small.head);
+        return big;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Helpers">
+    private int getIndex(int x, int y, int z) {
+        return x + y * nbX + z * nbXY;
+    }
+
+    private boolean isWalkable(int index) {
+        return walkable.isWalkable(index % nbX, (index / nbX) % nbY, index / nbXY);
+    }
+
+    /**
+     * Stores the indices of all neighbours within the grid in the neighbours array.
+     *
+     * @return  The number of neighbours.
+     */
+    private int getNeighbours(int index) {
+        int x = index % nbX;
+        int y = (index / nbX) % nbY;
+        int z = index / nbXY;
+        int n = 0;
+        for (int[] offset : OFFSETS) {
+            int nx = x + offset[0], ny = y + offset[1], nz = z + offset[2];
+            if (isValidPosition(nx, ny, nz))
+                neighbours[n++] = getIndex(nx, ny, nz);
+        }
+        return n;
+    }
+
+    private int newLabel() {
+        if (!freeLabels.isEmpty())
+            return freeLabels.pop();
+        if (nextLabel == members.length)
+            members = Arrays.copyOf(members, members.length * 2);
+        if (members[nextLabel] == null)
+            members[nextLabel] = new IntList();
+        return nextLabel++;
+    }
+
+    /**
+     * Gives the cube the given label and appends it to the cubes of that label.
+     */
+    private void addMember(int label, int index) {
+        labels[index] = label;
+        memberPositions[index] = members[label].size();
+        members[label].add(index);
+    }
+
+    /**
+     * Removes the cube from the cubes of its label by moving the last cube of the label in its place,
+     * the label is freed when it has no cubes left.
+     */
+    private void removeMember(int index) {
+        int label = labels[index];
+        IntList list = members[label];
+        int last = list.pop();
+        if (last != index) {
+            list.set(memberPositions[index], last);
+            memberPositions[last] = memberPositions[index];
+        }
+        labels[index] = NO_LABEL;
+        if (list.isEmpty())
+            freeLabels.add(label);
+    }
+
+    private void moveMember(int index, int label) {
+        removeMember(index);
+        addMember(label, index);
+    }
+
+    private void newGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(searchStamp, 0);
+            generation = 1;
+        }
+    }
+    //</editor-fold>
+}
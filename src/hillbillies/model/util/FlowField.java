@@ -0,0 +1,304 @@
+package hillbillies.model.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Distance field towards a set of target cubes of a 26-connected 3D grid.
+ *
+ * The field stores for each walkable cube the cost of the cheapest path to one of the targets
+ * and the first step of that path, calculated with a reverse Dijkstra search from the targets.
+ * Following the steps from any cube leads to the nearest target without searching.
+ * When the walkability of cubes changes, only the cubes whose path passed through a changed cube
+ * and the cubes that got a cheaper path are updated.
+ *
+ * @invar   Each walkable cube from which a target can be reached has the distance of its cheapest path,
+ *          all other cubes have an infinite distance.
+ */
+public class FlowField {
+
+    /**
+     * The distance of a cube from which no target can be reached.
+     */
+    public static final float UNREACHABLE = Float.POSITIVE_INFINITY;
+
+    private static final int NO_STEP = -1;
+
+    private final int nbX, nbY, nbZ;
+    private final int[] targets;
+    private final IntPredicate isWalkable;
+    private final GridPathFinder.Neighbours neighbours;
+
+    private final float[] distance;
+    private final int[] nextStep;
+
+    // the open set of the Dijkstra search, ordered by distance.
+    private long[] heap = new long[64];
+    private int heapSize;
+
+    private final int[] neighbourBuffer = new int[26];
+    private final IntList affected = new IntList();
+
+    /**
+     * Creates the field towards the given targets.
+     *
+     * @param   nbX
+     *          The size of the grid in the X direction.
+     * @param   nbY
+     *          The size of the grid in the Y direction.
+     * @param   nbZ
+     *          The size of the grid in the Z direction.
+     * @param   targets
+     *          The indices of the target cubes.
+     * @param   isWalkable
+     *          The predicate deciding whether the cube with an index is walkable.
+     * @param   neighbours
+     *          The provider of walkable neighbours.
+     *
+     * @throws  IllegalArgumentException
+     *          If one of the arguments isn't effective or there are no targets.
+     */
+    public FlowField(int nbX, int nbY, int nbZ, int[] targets, IntPredicate isWalkable,
+                     GridPathFinder.Neighbours neighbours) throws IllegalArgumentException {
+        if (targets == null || targets.length == 0 || isWalkable == null || neighbours == null)
+            throw new IllegalArgumentException("invalid flow field arguments");
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.targets = targets.clone();
+        Arrays.sort(this.targets);
+        this.isWalkable = isWalkable;
+        this.neighbours = neighbours;
+
+        this.distance = new float[nbX * nbY * nbZ];
+        this.nextStep = new int[nbX * nbY * nbZ];
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(nextStep, NO_STEP);
+        for (int target : this.targets)
+            seedTarget(target);
+        propagate();
+    }
+
+    //<editor-fold desc="Queries">
+    /**
+     * Returns the cost of the cheapest path from the given cube to a target.
+     *
+     * @param   index
+     *          The index of the cube.
+     *
+     * @return  The cost, or UNREACHABLE if no target can be reached from a walkable cube or the cube isn't walkable.
+     */
+    public float getDistance(int index) {
+        return distance[index];
+    }
+
+    /**
+     * Returns whether the given cube is one of the targets.
+     */
+    public boolean isTarget(int index) {
+        return Arrays.binarySearch(targets, index) >= 0;
+    }
+
+    /**
+     * Returns the next cube on the cheapest path from the given cube to a target.
+     * The given cube doesn't need to be walkable.
+     *
+     * @param   index
+     *          The index of the cube.
+     *
+     * @return  The index of the next cube, or -1 if the cube is a target or no target can be reached.
+     */
+    public int getNextStep(int index) {
+        if (distance[index] != UNREACHABLE)
+            return nextStep[index];
+        int best = NO_STEP;
+        float bestDistance = UNREACHABLE;
+        int n = neighbours.getNeighbours(index, neighbourBuffer);
+        for (int i = 0; i < n; i++) {
+            int next = neighbourBuffer[i];
+            float d = distance[next] + GridPathFinder.stepCost(index, next, nbX, nbY);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = next;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the cheapest path from the given cube to the nearest target.
+     *
+     * @param   start
+     *          The index of the start cube.
+     *
+     * @return  The indices of the cubes on the path, the first element is start and the last is a target.
+     *          If no target can be reached the result is null.
+     */
+    public IntList getPath(int start) {
+        IntList path = new IntList();
+        path.add(start);
+        if (distance[start] == 0f)
+            return path;
+        for (int current = getNextStep(start); current != NO_STEP; current = nextStep[current]) {
+            path.add(current);
+            if (distance[current] == 0f)
+                return path;
+        }
+        return null;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Updates">
+    /**
+     * Updates the field after the walkability of the given cube or one of its neighbours may have changed.
+     *
+     * @param   index
+     *          The index of the cube that changed.
+     *
+     * @post    The distances and steps of all cubes are those of their cheapest paths.
+     */
+    public void update(int index) {
+        int x = index % nbX, y = (index / nbX) % nbY, z = index / (nbX * nbY);
+        int x0 = Math.max(0, x - 1), x1 = Math.min(nbX - 1, x + 1);
+        int y0 = Math.max(0, y - 1), y1 = Math.min(nbY - 1, y + 1);
+        int z0 = Math.max(0, z - 1), z1 = Math.min(nbZ - 1, z + 1);
+
+        // the cubes that aren't walkable anymore and all cubes whose path passed through them lose their distance.
+        affected.clear();
+        for (int cz = z0; cz <= z1; cz++)
+            for (int cy = y0; cy <= y1; cy++)
+                for (int cx = x0; cx <= x1; cx++) {
+                    int cube = cx + cy * nbX + cz * nbX * nbY;
+                    if (distance[cube] != UNREACHABLE && !isWalkable.test(cube))
+                        collectDependants(cube);
+                }
+        for (int i = 0; i < affected.size(); i++) {
+            distance[affected.get(i)] = UNREACHABLE;
+            nextStep[affected.get(i)] = NO_STEP;
+        }
+
+        // the affected cubes and the changed cubes take the best distance offered by their neighbours.
+        for (int i = 0; i < affected.size(); i++)
+            relax(affected.get(i));
+        for (int cz = z0; cz <= z1; cz++)
+            for (int cy = y0; cy <= y1; cy++)
+                for (int cx = x0; cx <= x1; cx++)
+                    relax(cx + cy * nbX + cz * nbX * nbY);
+        propagate();
+    }
+
+    /**
+     * Adds the given cube and all cubes whose steps lead through it to the affected cubes.
+     */
+    private void collectDependants(int root) {
+        if (distance[root] < 0f)
+            return; // already collected
+        int from = affected.size();
+        affected.add(root);
+        distance[root] = -1f; // marks the cube as collected until the distances are cleared
+        for (int i = from; i < affected.size(); i++) {
+            int current = affected.get(i);
+            int n = neighbours.getNeighbours(current, neighbourBuffer);
+            for (int j = 0; j < n; j++) {
+                int next = neighbourBuffer[j];
+                if (nextStep[next] == current && distance[next] >= 0f) {
+                    distance[next] = -1f;
+                    affected.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lowers the distance of the given walkable cube to the best distance offered by a target or a neighbour.
+     */
+    private void relax(int index) {
+        if (!isWalkable.test(index))
+            return;
+        if (isTarget(index)) {
+            if (distance[index] != 0f)
+                seedTarget(index);
+            return;
+        }
+        int n = neighbours.getNeighbours(index, neighbourBuffer);
+        for (int i = 0; i < n; i++) {
+            int next = neighbourBuffer[i];
+            float d = distance[next] + GridPathFinder.stepCost(index, next, nbX, nbY);
+            if (d < distance[index]) {
+                distance[index] = d;
+                nextStep[index] = next;
+                push(index, d);
+            }
+        }
+    }
+
+    private void seedTarget(int target) {
+        if (!isWalkable.test(target))
+            return;
+        distance[target] = 0f;
+        nextStep[target] = NO_STEP;
+        push(target, 0f);
+    }
+
+    /**
+     * Runs the Dijkstra search until all cubes in the open set have their final distance.
+     */
+    private void propagate() {
+        while (heapSize > 0) {
+            long entry = poll();
+            int current = (int) entry;
+            float d = Float.intBitsToFloat((int) (entry >>> 32));
+            if (d > distance[current])
+                continue; // a cheaper path was found after this entry was added
+            int n = neighbours.getNeighbours(current, neighbourBuffer);
+            for (int i = 0; i < n; i++) {
+                int next = neighbourBuffer[i];
+                float newDistance = d + GridPathFinder.stepCost(next, current, nbX, nbY);
+                if (newDistance < distance[next]) {
+                    distance[next] = newDistance;
+                    nextStep[next] = current;
+                    push(next, newDistance);
+                }
+            }
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Heap">
+    /**
+     * Adds an entry to the open set, the bits of a non negative float are ordered like the float itself.
+     */
+    private void push(int index, float d) {
+        if (heapSize == heap.length)
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        long entry = ((long) Float.floatToIntBits(d) << 32) | index;
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry)
+                break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private long poll() {
+        long result = heap[0];
+        long last = heap[--heapSize];
+        int i = 0, half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child])
+                child++;
+            if (last <= heap[child])
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (heapSize > 0)
+            heap[i] = last;
+        return result;
+    }
+    //</editor-fold>
+}
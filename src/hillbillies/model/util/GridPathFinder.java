@@ -0,0 +1,492 @@
+package hillbillies.model.util;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A* pathfinder specialized for 26-connected 3D grids.
+ *
+ * Nodes are packed cube indices (x + y * nbX + z * nbX * nbY). All search state is kept in
+ * arrays that are reused between searches, a generation stamp marks which entries belong
+ * to the current search so the arrays never have to be cleared.
+ * The open set is an indexed binary heap that supports decrease-key. Nodes with equal estimated path costs
+ * are ordered by their estimated cost to the target, so the search prefers nodes closer to the target.
+ * The estimate is given by a pluggable heuristic, by default the octile distance.
+ *
+ * @invar   The neighbour provider must be effective.
+ */
+public class GridPathFinder {
+
+    /**
+     * Interface providing the neighbours a unit can walk to from a cube.
+     */
+    @FunctionalInterface
+    public interface Neighbours {
+        /**
+         * Stores the indices of the cubes that can be reached in one step from the given cube in result.
+         *
+         * @param   index
+         *          The index of the cube.
+         * @param   result
+         *          The array to store the indices in, it has room for 26 indices.
+         *
+         * @return  The number of neighbours stored.
+         */
+        int getNeighbours(int index, int[] result);
+    }
+
+    private static final int CLOSED = -2;
+
+    /**
+     * The target of a search that isn't directed, no node equals it and its estimates are 0.
+     */
+    private static final int NO_TARGET = -1;
+
+    /**
+     * The cost of a step changing 1, 2 or 3 coordinates.
+     */
+    private static final float[] STEP_COST = {0f, 1f, (float) Math.sqrt(2), (float) Math.sqrt(3)};
+
+    private final int nbX, nbY, nbXY;
+    private final Neighbours neighbours;
+
+    // search state, only valid for a node if its stamp equals the current generation.
+    private final int[] stamp;
+    private final float[] costSoFar;
+    private final int[] cameFrom;
+    private final int[] heapIndex;
+    private int generation;
+
+    // the open set, a binary heap of nodes ordered by their keys, then by their estimated cost to the target.
+    private int[] heap;
+    private float[] heapKeys;
+    private float[] heapTies;
+    private int heapSize;
+
+    private Heuristic heuristic = Heuristic.OCTILE;
+
+    private final int[] neighbourBuffer = new int[26];
+    private int expandedNodes;
+
+    // the current search.
+    private int searchStart, searchTarget;
+    private IntPredicate searchGoal, searchAllowed;
+    private boolean finished;
+    private IntList result;
+
+    /**
+     * Creates a new pathfinder for a grid of the given dimensions.
+     *
+     * @param   nbX
+     *          The size of the grid in the X direction.
+     * @param   nbY
+     *          The size of the grid in the Y direction.
+     * @param   nbZ
+     *          The size of the grid in the Z direction.
+     * @param   neighbours
+     *          The provider of walkable neighbours.
+     *
+     * @throws  IllegalArgumentException
+     *          If the neighbour provider isn't effective.
+     */
+    public GridPathFinder(int nbX, int nbY, int nbZ, Neighbours neighbours) throws IllegalArgumentException {
+        if (neighbours == null)
+            throw new IllegalArgumentException("neighbours isn't effective");
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbXY = nbX * nbY;
+        this.neighbours = neighbours;
+
+        int size = nbXY * nbZ;
+        this.stamp = new int[size];
+        this.costSoFar = new float[size];
+        this.cameFrom = new int[size];
+        this.heapIndex = new int[size];
+        this.generation = 0;
+        this.heap = new int[64];
+        this.heapKeys = new float[64];
+        this.heapTies = new float[64];
+    }
+
+    /**
+     * Returns the heuristic estimating the cost from a cube to the target.
+     */
+    @Basic
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Sets the heuristic estimating the cost from a cube to the target.
+     *
+     * @param   heuristic
+     *          The new heuristic.
+     *
+     * @post    The heuristic is set to the given heuristic.
+     *          | new.getHeuristic() == heuristic
+     *
+     * @throws  IllegalArgumentException
+     *          If the heuristic isn't effective.
+     */
+    public void setHeuristic(Heuristic heuristic) throws IllegalArgumentException {
+        if (heuristic == null)
+            throw new IllegalArgumentException("heuristic isn't effective");
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Calculates a shortest path from start to target.
+     *
+     * @param   start
+     *          The index of the start cube.
+     * @param   target
+     *          The index of the target cube.
+     *
+     * @return  The indices of the cubes on the path, the first element is start and the last is target.
+     *          If no path exists the result is null.
+     */
+    public IntList getPath(int start, int target) {
+        return getPath(start, target, null);
+    }
+
+    /**
+     * Calculates a shortest path from start to target that only passes through allowed cubes.
+     *
+     * @param   start
+     *          The index of the start cube.
+     * @param   target
+     *          The index of the target cube.
+     * @param   isAllowed
+     *          The predicate a cube after start must satisfy to be on the path, if null all cubes are allowed.
+     *
+     * @return  The indices of the cubes on the path, the first element is start and the last is target.
+     *          If no path exists the result is null.
+     */
+    public IntList getPath(int start, int target, IntPredicate isAllowed) {
+        return search(start, target, null, isAllowed, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Calculates a path from start to the first goal cube found, expanding at most the given number of cubes.
+     *
+     * @param   start
+     *          The index of the start cube.
+     * @param   target
+     *          The index of the cube the search is directed to, it is a goal as well.
+     * @param   isGoal
+     *          The predicate deciding whether a cube is a goal.
+     * @param   maxExpandedNodes
+     *          The maximum number of cubes to expand.
+     *
+     * @return  The indices of the cubes on the path, the first element is start and the last is a goal.
+     *          If no goal is found within the limit the result is null.
+     */
+    public IntList getPathToAny(int start, int target, IntPredicate isGoal, int maxExpandedNodes) {
+        return search(start, target, isGoal, null, maxExpandedNodes);
+    }
+
+    /**
+     * Calculates a path from start to the goal cube with the cheapest path.
+     * The search isn't directed, it expands the cubes in order of their cost from start (Dijkstra).
+     *
+     * @param   start
+     *          The index of the start cube.
+     * @param   isGoal
+     *          The predicate deciding whether a cube is a goal.
+     *
+     * @return  The indices of the cubes on the cheapest path to a goal, the first element is start
+     *          and the last is the goal. Start itself is a goal if it satisfies the predicate.
+     *          If no goal can be reached the result is null.
+     */
+    public IntList getPathToNearest(int start, IntPredicate isGoal) {
+        return search(start, NO_TARGET, isGoal, null, Integer.MAX_VALUE);
+    }
+
+    //<editor-fold desc="Resumable search">
+    /**
+     * Starts a search for a shortest path from start to target that only passes through allowed cubes.
+     * The search is advanced with continueSearch, starting another search abandons it.
+     *
+     * @param   start
+     *          The index of the start cube.
+     * @param   target
+     *          The index of the target cube.
+     * @param   isAllowed
+     *          The predicate a cube after start must satisfy to be on the path, if null all cubes are allowed.
+     *
+     * @post    The search isn't finished and no nodes are expanded.
+     *          | !new.isSearchFinished() && new.getExpandedNodes() == 0
+     */
+    public void startSearch(int start, int target, IntPredicate isAllowed) {
+        begin(start, target, null, isAllowed);
+    }
+
+    /**
+     * Continues the current search, expanding at most the given number of cubes.
+     *
+     * @param   maxExpandedNodes
+     *          The maximum number of cubes to expand in this call.
+     *
+     * @return  Whether the search is finished.
+     *          | result == new.isSearchFinished()
+     */
+    public boolean continueSearch(int maxExpandedNodes) {
+        return finished || run(maxExpandedNodes);
+    }
+
+    /**
+     * Returns whether the current search found a path or ran out of cubes to expand.
+     */
+    @Basic
+    public boolean isSearchFinished() {
+        return finished;
+    }
+
+    /**
+     * Returns the result of the current search.
+     *
+     * @return  The indices of the cubes on the path, the first element is start and the last is the target.
+     *          Null if the search isn't finished or no path exists.
+     */
+    public IntList getSearchResult() {
+        return result;
+    }
+
+    private IntList search(int start, int target, IntPredicate isGoal, IntPredicate isAllowed, int maxExpandedNodes) {
+        begin(start, target, isGoal, isAllowed);
+        run(maxExpandedNodes);
+        return result;
+    }
+
+    private void begin(int start, int target, IntPredicate isGoal, IntPredicate isAllowed) {
+        newGeneration();
+        heapSize = 0;
+        expandedNodes = 0;
+        searchStart = start;
+        searchTarget = target;
+        searchGoal = isGoal;
+        searchAllowed = isAllowed;
+        finished = false;
+        result = null;
+        open(start, 0f, start, estimate(start, target));
+    }
+
+    /**
+     * Expands at most the given number of cubes of the current search.
+     *
+     * @return  Whether the search is finished.
+     */
+    private boolean run(int maxExpandedNodes) {
+        int target = searchTarget;
+        IntPredicate isGoal = searchGoal, isAllowed = searchAllowed;
+        long limit = (long) expandedNodes + maxExpandedNodes;
+
+        while (heapSize > 0) {
+            int current = heap[0];
+            if (current == target || (isGoal != null && isGoal.test(current))) {
+                finished = true;
+                result = buildPath(searchStart, current);
+                return true;
+            }
+            if (expandedNodes >= limit)
+                return false;
+            poll();
+            expandedNodes++;
+
+            float currentCost = costSoFar[current];
+            int n = neighbours.getNeighbours(current, neighbourBuffer);
+            for (int i = 0; i < n; i++) {
+                int next = neighbourBuffer[i];
+                if (isAllowed != null && !isAllowed.test(next))
+                    continue;
+                float newCost = currentCost + cost(current, next);
+                if (stamp[next] != generation) {
+                    open(next, newCost, current, estimate(next, target));
+                } else if (newCost < costSoFar[next]) {
+                    costSoFar[next] = newCost;
+                    cameFrom[next] = current;
+                    if (heapIndex[next] == CLOSED)
+                        reopen(next, newCost, estimate(next, target)); // only if the heuristic isn't consistent
+                    else
+                        decreaseKey(next, newCost, estimate(next, target));
+                }
+            }
+        }
+        finished = true;
+        return true;
+    }
+    //</editor-fold>
+
+    /**
+     * Returns the number of nodes expanded by the current or last search.
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    //<editor-fold desc="Costs">
+    /**
+     * Returns the cost of the step between two neighbouring cubes.
+     *
+     * @return  The euclidean distance between both cubes.
+     */
+    private float cost(int a, int b) {
+        return stepCost(a, b, nbX, nbY);
+    }
+
+    /**
+     * Returns the cost of the step between two neighbouring cubes of a grid with the given size.
+     *
+     * @return  The euclidean distance between both cubes.
+     */
+    static float stepCost(int a, int b, int nbX, int nbY) {
+        int nbXY = nbX * nbY;
+        int changed = 0;
+        if (a % nbX != b % nbX)
+            changed++;
+        if ((a / nbX) % nbY != (b / nbX) % nbY)
+            changed++;
+        if (a / nbXY != b / nbXY)
+            changed++;
+        return STEP_COST[changed];
+    }
+
+    /**
+     * Returns the estimated cost from a cube to the target.
+     *
+     * @return  The estimate of the heuristic for the differences between both cubes,
+     *          0 if the search has no target.
+     */
+    private float estimate(int a, int b) {
+        if (b == NO_TARGET)
+            return 0f;
+        return (float) heuristic.estimate(a % nbX - b % nbX, (a / nbX) % nbY - (b / nbX) % nbY, a / nbXY - b / nbXY);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Helpers">
+    private IntList buildPath(int start, int end) {
+        IntList path = new IntList();
+        for (int current = end; current != start; current = cameFrom[current])
+            path.add(current);
+        path.add(start);
+        // reverse, so the path starts at start.
+        for (int i = 0, j = path.size() - 1; i < j; i++, j--) {
+            int tmp = path.get(i);
+            path.set(i, path.get(j));
+            path.set(j, tmp);
+        }
+        return path;
+    }
+
+    private void newGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Heap">
+    /**
+     * Adds a node that wasn't seen in this search to the open set.
+     */
+    private void open(int node, float cost, int from, float estimate) {
+        stamp[node] = generation;
+        costSoFar[node] = cost;
+        cameFrom[node] = from;
+        reopen(node, cost, estimate);
+    }
+
+    /**
+     * Adds a closed node to the open set again.
+     */
+    private void reopen(int node, float cost, float estimate) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapKeys.length * 2);
+            heapTies = Arrays.copyOf(heapTies, heapTies.length * 2);
+        }
+        heap[heapSize] = node;
+        heapKeys[heapSize] = cost + estimate;
+        heapTies[heapSize] = estimate;
+        heapIndex[node] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    /**
+     * Removes the node with the lowest key from the open set and marks it closed.
+     */
+    private int poll() {
+        int node = heap[0];
+        heapIndex[node] = CLOSED;
+        heapSize--;
+        if (heapSize > 0) {
+            move(heapSize, 0);
+            siftDown(0);
+        }
+        return node;
+    }
+
+    private void decreaseKey(int node, float cost, float estimate) {
+        int i = heapIndex[node];
+        heapKeys[i] = cost + estimate;
+        heapTies[i] = estimate;
+        siftUp(i);
+    }
+
+    private void siftUp(int i) {
+        int node = heap[i];
+        float key = heapKeys[i], tie = heapTies[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!isBefore(key, tie, heapKeys[parent], heapTies[parent]))
+                break;
+            move(parent, i);
+            i = parent;
+        }
+        place(node, key, tie, i);
+    }
+
+    private void siftDown(int i) {
+        int node = heap[i];
+        float key = heapKeys[i], tie = heapTies[i];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && isBefore(heapKeys[child + 1], heapTies[child + 1],
+                    heapKeys[child], heapTies[child]))
+                child++;
+            if (!isBefore(heapKeys[child], heapTies[child], key, tie))
+                break;
+            move(child, i);
+            i = child;
+        }
+        place(node, key, tie, i);
+    }
+
+    /**
+     * Returns whether an entry with the first key and tie comes strictly before an entry with the second.
+     */
+    private static boolean isBefore(float key, float tie, float otherKey, float otherTie) {
+        return key < otherKey || (key == otherKey && tie < otherTie);
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        heapKeys[to] = heapKeys[from];
+        heapTies[to] = heapTies[from];
+        heapIndex[heap[to]] = to;
+    }
+
+    private void place(int node, float key, float tie, int i) {
+        heap[i] = node;
+        heapKeys[i] = key;
+        heapTies[i] = tie;
+        heapIndex[node] = i;
+    }
+    //</editor-fold>
+}
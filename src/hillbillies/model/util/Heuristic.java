@@ -0,0 +1,48 @@
+package hillbillies.model.util;
+
+/**
+ * Estimates of the cost of a path between two cubes of a 26-connected grid,
+ * where a step changing 1, 2 or 3 coordinates costs 1, sqrt(2) or sqrt(3).
+ */
+public enum Heuristic {
+    /**
+     * The sum of the differences of the coordinates.
+     * It overestimates diagonal paths, so the paths found with it aren't always the shortest.
+     */
+    MANHATTAN {
+        @Override
+        public double estimate(int dx, int dy, int dz) {
+            return Math.abs(dx) + Math.abs(dy) + Math.abs(dz);
+        }
+    },
+    /**
+     * The cost of the cheapest path if no cube were blocked: as many steps along three axes as possible,
+     * then along two axes, then along one.
+     * It never overestimates and is consistent, so the paths found with it are the shortest.
+     */
+    OCTILE {
+        @Override
+        public double estimate(int dx, int dy, int dz) {
+            int a = Math.abs(dx), b = Math.abs(dy), c = Math.abs(dz);
+            int max = Math.max(a, Math.max(b, c)), min = Math.min(a, Math.min(b, c));
+            int mid = a + b + c - max - min;
+            return SQRT3 * min + SQRT2 * (mid - min) + (max - mid);
+        }
+    };
+
+    private static final double SQRT2 = Math.sqrt(2), SQRT3 = Math.sqrt(3);
+
+    /**
+     * Returns the estimated cost of a path between two cubes.
+     *
+     * @param   dx
+     *          The difference of the X coordinates of both cubes.
+     * @param   dy
+     *          The difference of the Y coordinates of both cubes.
+     * @param   dz
+     *          The difference of the Z coordinates of both cubes.
+     *
+     * @return  The estimated cost, not negative and 0 if all differences are 0.
+     */
+    public abstract double estimate(int dx, int dy, int dz);
+}
@@ -0,0 +1,525 @@
+package hillbillies.model.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical pathfinder (HPA*) for 26-connected 3D grids.
+ *
+ * The grid is split in cubic chunks. The walkable cubes of each chunk are split in regions,
+ * the cubes of a region are connected by paths inside the chunk. Two regions are connected by an entrance
+ * if a cube of one region neighbours a cube of the other, the regions and entrances form the abstract graph.
+ * A long path is found by searching the abstract graph first and then searching the grid,
+ * restricted to the corridor of regions on the abstract path.
+ * The abstract graph is searched with A* on the region ids, the cost of an entrance is the distance between
+ * the centers of both regions.
+ *
+ * When the walkability of a cube changes its chunk is marked dirty, dirty chunks are rebuilt
+ * together with their entrances before the next search.
+ *
+ * @invar   Each walkable cube belongs to exactly one region of its chunk, unless its chunk is dirty.
+ */
+public class HierarchicalPathFinder {
+
+    /**
+     * The size of the chunks in each direction.
+     */
+    public static final int CHUNK_SIZE = 8;
+
+    private static final int NO_REGION = -1;
+
+    private final int nbX, nbY, nbZ;
+    private final int nbChunksX, nbChunksY, nbChunksZ;
+    private final IntPredicate isWalkable;
+    private final GridPathFinder.Neighbours neighbours;
+    private final GridPathFinder gridPathFinder;
+
+    /**
+     * The region of each cube, NO_REGION if the cube isn't walkable.
+     */
+    private final int[] regionOf;
+    private final IntList[] chunkRegions;
+    private final boolean[] dirty;
+    private final IntList dirtyChunks;
+
+    // the regions, indexed by region id.
+    private int[] regionChunk;
+    private int[] regionCenter;
+    private IntList[] regionEntrances;
+    private final IntList freeRegions;
+    private int nbRegions;
+
+    // regions on the current abstract path have a corridor stamp equal to the corridor generation.
+    private int[] corridor;
+    private int corridorGeneration;
+
+    // search state of the abstract graph, only valid for a region if its stamp equals the current generation.
+    private int[] abstractStamp;
+    private float[] abstractCost;
+    private int[] abstractParent;
+    private boolean[] abstractClosed;
+    private int abstractGeneration;
+
+    // the open set of the abstract graph, entries are the bits of the key followed by the region,
+    // stale entries are skipped.
+    private long[] abstractHeap;
+    private int abstractHeapSize;
+
+    private final int[] neighbourBuffer = new int[26];
+    private final int[] startRegions = new int[26];
+    private int abstractExpandedNodes;
+
+    /**
+     * Creates a new hierarchical pathfinder and builds all chunks.
+     *
+     * @param   nbX
+     *          The size of the grid in the X direction.
+     * @param   nbY
+     *          The size of the grid in the Y direction.
+     * @param   nbZ
+     *          The size of the grid in the Z direction.
+     * @param   isWalkable
+     *          The predicate deciding whether the cube with an index is walkable.
+     * @param   neighbours
+     *          The provider of walkable neighbours.
+     * @param   gridPathFinder
+     *          The pathfinder to refine paths with, it must use the same neighbours.
+     *
+     * @throws  IllegalArgumentException
+     *          If one of the arguments isn't effective.
+     */
+    public HierarchicalPathFinder(int nbX, int nbY, int nbZ, IntPredicate isWalkable,
+                                  GridPathFinder.Neighbours neighbours, GridPathFinder gridPathFinder)
+            throws IllegalArgumentException {
+        if (isWalkable == null || neighbours == null || gridPathFinder == null)
+            throw new IllegalArgumentException("arguments must be effective");
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.nbChunksX = (nbX + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.nbChunksY = (nbY + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.nbChunksZ = (nbZ + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.isWalkable = isWalkable;
+        this.neighbours = neighbours;
+        this.gridPathFinder = gridPathFinder;
+
+        this.regionOf = new int[nbX * nbY * nbZ];
+        Arrays.fill(regionOf, NO_REGION);
+        int nbChunks = nbChunksX * nbChunksY * nbChunksZ;
+        this.chunkRegions = new IntList[nbChunks];
+        for (int i = 0; i < nbChunks; i++)
+            chunkRegions[i] = new IntList(4);
+        this.dirty = new boolean[nbChunks];
+        this.dirtyChunks = new IntList();
+
+        this.regionChunk = new int[nbChunks];
+        this.regionCenter = new int[nbChunks];
+        this.regionEntrances = new IntList[nbChunks];
+        this.freeRegions = new IntList();
+        this.nbRegions = 0;
+        this.corridor = new int[nbChunks];
+        this.corridorGeneration = 0;
+        this.abstractStamp = new int[nbChunks];
+        this.abstractCost = new float[nbChunks];
+        this.abstractParent = new int[nbChunks];
+        this.abstractClosed = new boolean[nbChunks];
+        this.abstractGeneration = 0;
+        this.abstractHeap = new long[64];
+
+        for (int chunk = 0; chunk < nbChunks; chunk++)
+            dirty(chunk);
+        rebuildDirtyChunks();
+    }
+
+    //<editor-fold desc="Paths">
+    /**
+     * Calculates a path from start to target.
+     * Paths between cubes in the same or neighbouring chunks are searched directly on the grid.
+     *
+     * @param   start
+     *          The index of the start cube.
+     * @param   target
+     *          The index of the target cube.
+     *
+     * @return  The indices of the cubes on the path, the first element is start and the last is target.
+     *          Each cube after start is a walkable neighbour of the previous cube.
+     *          If no path exists the result is null.
+     */
+    public IntList getPath(int start, int target) {
+        abstractExpandedNodes = 0;
+        if (start == target || chunkDistance(start, target) <= 1)
+            return gridPathFinder.getPath(start, target);
+        rebuildDirtyChunks();
+
+        int targetRegion = regionOf[target];
+        if (targetRegion == NO_REGION)
+            return null;
+        int nbStarts;
+        if (regionOf[start] != NO_REGION) {
+            startRegions[0] = regionOf[start];
+            nbStarts = 1;
+        } else {
+            // the start doesn't need to be walkable, start from the regions of its walkable neighbours.
+            nbStarts = neighbours.getNeighbours(start, neighbourBuffer);
+            for (int i = 0; i < nbStarts; i++)
+                startRegions[i] = regionOf[neighbourBuffer[i]];
+        }
+        if (!findCorridor(nbStarts, targetRegion))
+            return null;
+        return gridPathFinder.getPath(start, target,
+                index -> regionOf[index] != NO_REGION && corridor[regionOf[index]] == corridorGeneration);
+    }
+
+    /**
+     * Marks the chunks of the given cube and of its neighbours dirty.
+     * This must be called whenever the walkability of the cube or one of its neighbours may have changed.
+     *
+     * @param   index
+     *          The index of the cube that changed.
+     */
+    public void invalidate(int index) {
+        int x = index % nbX, y = (index / nbX) % nbY, z = index / (nbX * nbY);
+        for (int cx = Math.max(0, x - 1) / CHUNK_SIZE; cx <= Math.min(nbX - 1, x + 1) / CHUNK_SIZE; cx++)
+            for (int cy = Math.max(0, y - 1) / CHUNK_SIZE; cy <= Math.min(nbY - 1, y + 1) / CHUNK_SIZE; cy++)
+                for (int cz = Math.max(0, z - 1) / CHUNK_SIZE; cz <= Math.min(nbZ - 1, z + 1) / CHUNK_SIZE; cz++)
+                    dirty(cx + cy * nbChunksX + cz * nbChunksX * nbChunksY);
+    }
+
+    /**
+     * Returns the number of regions expanded in the abstract graph by the last search.
+     */
+    public int getAbstractExpandedNodes() {
+        return abstractExpandedNodes;
+    }
+
+    /**
+     * Returns the number of regions in the abstract graph.
+     */
+    public int getNbRegions() {
+        rebuildDirtyChunks();
+        return nbRegions - freeRegions.size();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Abstract search">
+    /**
+     * Searches a shortest path in the abstract graph from one of the first start regions to the target region,
+     * and marks the regions on it as the corridor.
+     *
+     * @return  Whether a path was found.
+     */
+    private boolean findCorridor(int nbStarts, int target) {
+        newAbstractGeneration();
+        abstractHeapSize = 0;
+        for (int i = 0; i < nbStarts; i++) {
+            int region = startRegions[i];
+            if (region != NO_REGION && abstractStamp[region] != abstractGeneration)
+                openRegion(region, 0f, region, target);
+        }
+
+        while (abstractHeapSize > 0) {
+            int current = (int) pollRegion();
+            if (abstractClosed[current])
+                continue; // a cheaper entry of the region was expanded before
+            if (current == target) {
+                corridorGeneration++;
+                for (int region = target; ; region = abstractParent[region]) {
+                    corridor[region] = corridorGeneration;
+                    if (abstractParent[region] == region)
+                        break;
+                }
+                return true;
+            }
+            abstractClosed[current] = true;
+            abstractExpandedNodes++;
+
+            IntList entrances = regionEntrances[current];
+            for (int i = 0; i < entrances.size(); i++) {
+                int next = entrances.get(i);
+                float newCost = abstractCost[current] + (float) distance(regionCenter[current], regionCenter[next]);
+                if (abstractStamp[next] != abstractGeneration) {
+                    openRegion(next, newCost, current, target);
+                } else if (newCost < abstractCost[next]) {
+                    abstractCost[next] = newCost;
+                    abstractParent[next] = current;
+                    abstractClosed[next] = false;
+                    pushRegion(next, newCost + (float) distance(regionCenter[next], regionCenter[target]));
+                }
+            }
+        }
+        return false;
+    }
+
+    private void openRegion(int region, float cost, int from, int target) {
+        abstractStamp[region] = abstractGeneration;
+        abstractCost[region] = cost;
+        abstractParent[region] = from;
+        abstractClosed[region] = false;
+        pushRegion(region, cost + (float) distance(regionCenter[region], regionCenter[target]));
+    }
+
+    private void newAbstractGeneration() {
+        abstractGeneration++;
+        if (abstractGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(abstractStamp, 0);
+            abstractGeneration = 1;
+        }
+    }
+
+    /**
+     * Adds an entry to the open set, the bits of a non negative float are ordered like the float itself.
+     */
+    private void pushRegion(int region, float key) {
+        if (abstractHeapSize == abstractHeap.length)
+            abstractHeap = Arrays.copyOf(abstractHeap, abstractHeap.length * 2);
+        long[] h = abstractHeap;
+        long entry = ((long) Float.floatToIntBits(Math.max(0f, key)) << 32) | region;
+        int i = abstractHeapSize++;
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (h[p] <= entry)
+                break;
+            h[i] = h[p];
+            i = p;
+        }
+        h[i] = entry;
+    }
+
+    private long pollRegion() {
+        long[] h = abstractHeap;
+        long result = h[0];
+        int size = --abstractHeapSize;
+        long last = h[size];
+        int i = 0, half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && h[child + 1] < h[child])
+                child++;
+            if (last <= h[child])
+                break;
+            h[i] = h[child];
+            i = child;
+        }
+        if (size > 0)
+            h[i] = last;
+        return result;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Chunks">
+    private void dirty(int chunk) {
+        if (!dirty[chunk]) {
+            dirty[chunk] = true;
+            dirtyChunks.add(chunk);
+        }
+    }
+
+    /**
+     * Rebuilds the regions of all dirty chunks, followed by their entrances.
+     */
+    private void rebuildDirtyChunks() {
+        if (dirtyChunks.isEmpty())
+            return;
+        for (int i = 0; i < dirtyChunks.size(); i++)
+            buildRegions(dirtyChunks.get(i));
+        for (int i = 0; i < dirtyChunks.size(); i++)
+            buildEntrances(dirtyChunks.get(i));
+        for (int i = 0; i < dirtyChunks.size(); i++)
+            dirty[dirtyChunks.get(i)] = false;
+        dirtyChunks.clear();
+    }
+
+    /**
+     * Replaces the regions of the given chunk by the connected sets of its walkable cubes.
+     */
+    private void buildRegions(int chunk) {
+        IntList old = chunkRegions[chunk];
+        for (int i = 0; i < old.size(); i++)
+            removeRegion(old.get(i));
+        old.clear();
+
+        int x0 = (chunk % nbChunksX) * CHUNK_SIZE;
+        int y0 = ((chunk / nbChunksX) % nbChunksY) * CHUNK_SIZE;
+        int z0 = (chunk / (nbChunksX * nbChunksY)) * CHUNK_SIZE;
+        int x1 = Math.min(nbX, x0 + CHUNK_SIZE), y1 = Math.min(nbY, y0 + CHUNK_SIZE), z1 = Math.min(nbZ, z0 + CHUNK_SIZE);
+        for (int z = z0; z < z1; z++)
+            for (int y = y0; y < y1; y++)
+                for (int x = x0; x < x1; x++)
+                    regionOf[x + y * nbX + z * nbX * nbY] = NO_REGION;
+
+        IntList members = new IntList();
+        for (int z = z0; z < z1; z++) {
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    int index = x + y * nbX + z * nbX * nbY;
+                    if (regionOf[index] != NO_REGION || !isWalkable.test(index))
+                        continue;
+                    int region = newRegion(chunk);
+                    floodRegion(index, region, chunk, members);
+                    regionCenter[region] = findCenter(members);
+                }
+            }
+        }
+    }
+
+    /**
+     * Labels all cubes connected to the given cube inside the chunk with the given region.
+     * The labelled cubes are stored in members.
+     */
+    private void floodRegion(int index, int region, int chunk, IntList members) {
+        members.clear();
+        regionOf[index] = region;
+        members.add(index);
+        for (int i = 0; i < members.size(); i++) {
+            int n = neighbours.getNeighbours(members.get(i), neighbourBuffer);
+            for (int j = 0; j < n; j++) {
+                int next = neighbourBuffer[j];
+                if (regionOf[next] == NO_REGION && getChunk(next) == chunk) {
+                    regionOf[next] = region;
+                    members.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the member closest to the mean position of the members.
+     */
+    private int findCenter(IntList members) {
+        double mx = 0, my = 0, mz = 0;
+        for (int i = 0; i < members.size(); i++) {
+            int index = members.get(i);
+            mx += index % nbX;
+            my += (index / nbX) % nbY;
+            mz += index / (nbX * nbY);
+        }
+        mx /= members.size();
+        my /= members.size();
+        mz /= members.size();
+        int best = members.get(0);
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < members.size(); i++) {
+            int index = members.get(i);
+            double dx = index % nbX - mx, dy = (index / nbX) % nbY - my, dz = index / (nbX * nbY) - mz;
+            double d = dx * dx + dy * dy + dz * dz;
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = index;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Adds an entrance between each region of the given chunk and each region of another chunk
+     * that contains a neighbour of one of its cubes.
+     */
+    private void buildEntrances(int chunk) {
+        int x0 = (chunk % nbChunksX) * CHUNK_SIZE;
+        int y0 = ((chunk / nbChunksX) % nbChunksY) * CHUNK_SIZE;
+        int z0 = (chunk / (nbChunksX * nbChunksY)) * CHUNK_SIZE;
+        int x1 = Math.min(nbX, x0 + CHUNK_SIZE), y1 = Math.min(nbY, y0 + CHUNK_SIZE), z1 = Math.min(nbZ, z0 + CHUNK_SIZE);
+        for (int z = z0; z < z1; z++) {
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    // only the faces of the chunk have neighbours in other chunks.
+                    if (x != x0 && x != x1 - 1 && y != y0 && y != y1 - 1 && z != z0 && z != z1 - 1)
+                        continue;
+                    int index = x + y * nbX + z * nbX * nbY;
+                    int region = regionOf[index];
+                    if (region == NO_REGION)
+                        continue;
+                    int n = neighbours.getNeighbours(index, neighbourBuffer);
+                    for (int j = 0; j < n; j++) {
+                        int other = regionOf[neighbourBuffer[j]];
+                        if (other != NO_REGION && regionChunk[other] != chunk)
+                            addEntrance(region, other);
+                    }
+                }
+            }
+        }
+    }
+
+    private int getChunk(int index) {
+        int x = index % nbX, y = (index / nbX) % nbY, z = index / (nbX * nbY);
+        return x / CHUNK_SIZE + (y / CHUNK_SIZE) * nbChunksX + (z / CHUNK_SIZE) * nbChunksX * nbChunksY;
+    }
+
+    /**
+     * Returns the largest difference between the chunk coordinates of both cubes.
+     */
+    private int chunkDistance(int a, int b) {
+        int dx = Math.abs(a % nbX / CHUNK_SIZE - b % nbX / CHUNK_SIZE);
+        int dy = Math.abs((a / nbX) % nbY / CHUNK_SIZE - (b / nbX) % nbY / CHUNK_SIZE);
+        int dz = Math.abs(a / (nbX * nbY) / CHUNK_SIZE - b / (nbX * nbY) / CHUNK_SIZE);
+        return Math.max(dx, Math.max(dy, dz));
+    }
+
+    private double distance(int a, int b) {
+        int dx = a % nbX - b % nbX, dy = (a / nbX) % nbY - (b / nbX) % nbY, dz = a / (nbX * nbY) - b / (nbX * nbY);
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Regions">
+    private int newRegion(int chunk) {
+        int region;
+        if (!freeRegions.isEmpty()) {
+            region = freeRegions.pop();
+        } else {
+            region = nbRegions++;
+            if (region == regionChunk.length) {
+                int capacity = regionChunk.length * 2;
+                regionChunk = Arrays.copyOf(regionChunk, capacity);
+                regionCenter = Arrays.copyOf(regionCenter, capacity);
+                regionEntrances = Arrays.copyOf(regionEntrances, capacity);
+                corridor = Arrays.copyOf(corridor, capacity);
+                abstractStamp = Arrays.copyOf(abstractStamp, capacity);
+                abstractCost = Arrays.copyOf(abstractCost, capacity);
+                abstractParent = Arrays.copyOf(abstractParent, capacity);
+                abstractClosed = Arrays.copyOf(abstractClosed, capacity);
+            }
+            regionEntrances[region] = new IntList(8);
+        }
+        regionChunk[region] = chunk;
+        corridor[region] = 0;
+        chunkRegions[chunk].add(region);
+        return region;
+    }
+
+    /**
+     * Removes the region and all entrances to it.
+     */
+    private void removeRegion(int region) {
+        IntList entrances = regionEntrances[region];
+        for (int i = 0; i < entrances.size(); i++)
+            removeValue(regionEntrances[entrances.get(i)], region);
+        entrances.clear();
+        freeRegions.add(region);
+    }
+
+    private void addEntrance(int a, int b) {
+        if (!contains(regionEntrances[a], b)) {
+            regionEntrances[a].add(b);
+            regionEntrances[b].add(a);
+        }
+    }
+
+    private static boolean contains(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++)
+            if (list.get(i) == value)
+                return true;
+        return false;
+    }
+
+    private static void removeValue(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                list.set(i, list.get(list.size() - 1));
+                list.pop();
+                return;
+            }
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,110 @@
+package hillbillies.model.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive integers, used to avoid boxing in the grid algorithms.
+ */
+public class IntList {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] data;
+    private int size;
+
+    /**
+     * Creates a new empty list.
+     */
+    public IntList() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty list with the given initial capacity.
+     *
+     * @param   capacity
+     *          The initial capacity of the list.
+     */
+    public IntList(int capacity) {
+        this.data = new int[Math.max(1, capacity)];
+        this.size = 0;
+    }
+
+    /**
+     * Adds the given value at the end of the list.
+     *
+     * @param   value
+     *          The value to add.
+     */
+    public void add(int value) {
+        if (size == data.length)
+            data = Arrays.copyOf(data, data.length * 2);
+        data[size++] = value;
+    }
+
+    /**
+     * Adds the values of the other list in the range [from, other.size()) to this list.
+     *
+     * @param   other
+     *          The list to copy the values from.
+     * @param   from
+     *          The index of the first value to copy.
+     */
+    public void addAll(IntList other, int from) {
+        int count = other.size - from;
+        if (count <= 0)
+            return;
+        if (size + count > data.length)
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + count));
+        System.arraycopy(other.data, from, data, size, count);
+        size += count;
+    }
+
+    /**
+     * Returns the value at the given index.
+     */
+    public int get(int index) {
+        return data[index];
+    }
+
+    /**
+     * Sets the value at the given index.
+     */
+    public void set(int index, int value) {
+        data[index] = value;
+    }
+
+    /**
+     * Removes the last value and returns it.
+     */
+    public int pop() {
+        return data[--size];
+    }
+
+    /**
+     * Returns the number of values in the list.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the list is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all values from the list, the capacity is kept.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns a copy of the values in the list.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
@@ -0,0 +1,388 @@
+package hillbillies.model.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Jump point search for 26-connected 3D grids, indexed like GridPathFinder.
+ *
+ * Open areas have many paths of equal cost between two cubes, plain A* expands the cubes of all of them.
+ * Jump point search only expands the cubes where the best path may change direction: from each expanded
+ * cube it moves in a straight line, straight or diagonally, until it reaches the target, a cube next to an
+ * unwalkable cube that forces a turn, or a cube from which a move in a direction that is part of the
+ * current direction finds such a cube.
+ *
+ * Which neighbours of a cube must be considered is decided by tables computed once for all 26 directions:
+ * a neighbour of a cube reached in some direction is skipped if the cubes of a path of at most the same cost
+ * from the previous cube to that neighbour around the cube are walkable.
+ *
+ * @invar   The walkable predicate must be effective.
+ */
+public class JumpPointPathFinder {
+
+    /**
+     * The 26 directions, as {dx, dy, dz}.
+     */
+    private static final int[][] DIRECTIONS;
+
+    /**
+     * The cost of a step in each direction.
+     */
+    private static final float[] DIRECTION_COST;
+
+    /**
+     * For each direction, the directions whose non zero components are a part of it, including itself.
+     * These neighbours are always considered.
+     */
+    private static final int[][] NATURAL;
+
+    /**
+     * For each direction, the directions whose non zero components are a strict part of it.
+     */
+    private static final int[][] PARTS;
+
+    /**
+     * For each direction, the other neighbours that are considered when all their alternatives are blocked,
+     * and for each of them the offsets of the cubes of the alternatives, relative to the cube.
+     */
+    private static final int[][] FORCED;
+    private static final int[][][][] ALTERNATIVES;
+
+    static {
+        DIRECTIONS = new int[26][];
+        int i = 0;
+        for (int dz = -1; dz <= 1; dz++)
+            for (int dy = -1; dy <= 1; dy++)
+                for (int dx = -1; dx <= 1; dx++)
+                    if (dx != 0 || dy != 0 || dz != 0)
+                        DIRECTIONS[i++] = new int[] {dx, dy, dz};
+        DIRECTION_COST = new float[26];
+        for (int d = 0; d < 26; d++)
+            DIRECTION_COST[d] = (float) cost(DIRECTIONS[d]);
+
+        NATURAL = new int[26][];
+        PARTS = new int[26][];
+        FORCED = new int[26][];
+        ALTERNATIVES = new int[26][][][];
+        for (int d = 0; d < 26; d++) {
+            List<Integer> natural = new ArrayList<>(), parts = new ArrayList<>(), forced = new ArrayList<>();
+            List<int[][]> alternatives = new ArrayList<>();
+            int[] parent = negate(DIRECTIONS[d]);
+            for (int q = 0; q < 26; q++) {
+                if (Arrays.equals(DIRECTIONS[q], parent))
+                    continue;
+                if (isPart(DIRECTIONS[q], DIRECTIONS[d])) {
+                    natural.add(q);
+                    if (q != d)
+                        parts.add(q);
+                    continue;
+                }
+                // the cost of the path parent -> cube -> neighbour.
+                double via = cost(DIRECTIONS[d]) + cost(DIRECTIONS[q]) + 1e-9;
+                int[] fromParent = subtract(DIRECTIONS[q], parent);
+                if (isStep(fromParent) && cost(fromParent) <= via)
+                    continue; // the neighbour can always be reached from the parent directly
+                List<int[]> around = new ArrayList<>();
+                for (int[] r : DIRECTIONS) {
+                    int[] first = subtract(r, parent), second = subtract(DIRECTIONS[q], r);
+                    if (Arrays.equals(r, parent) || Arrays.equals(r, DIRECTIONS[q]) || !isStep(first) || !isStep(second))
+                        continue;
+                    // the alternative must continue in a part of its own direction, as a search along it would.
+                    if (cost(first) + cost(second) <= via && isPart(second, first))
+                        around.add(r);
+                }
+                forced.add(q);
+                alternatives.add(around.toArray(new int[around.size()][]));
+            }
+            NATURAL[d] = natural.stream().mapToInt(Integer::intValue).toArray();
+            PARTS[d] = parts.stream().mapToInt(Integer::intValue).toArray();
+            FORCED[d] = forced.stream().mapToInt(Integer::intValue).toArray();
+            ALTERNATIVES[d] = alternatives.toArray(new int[alternatives.size()][][]);
+        }
+    }
+
+    private static final int NO_JUMP = -1;
+
+    private final int nbX, nbY, nbZ, nbXY;
+    private final IntPredicate isWalkable;
+
+    // search state, only valid for a node if its stamp equals the current generation.
+    private final int[] stamp;
+    private final float[] costSoFar;
+    private final int[] cameFrom;
+    private final boolean[] closed;
+    private int generation;
+
+    // the open set, entries are the bits of the key followed by the node, stale entries are skipped.
+    private long[] heap = new long[64];
+    private int heapSize;
+
+    private int target;
+    private int expandedNodes;
+
+    /**
+     * Creates a new pathfinder for a grid of the given dimensions.
+     *
+     * @param   nbX
+     *          The size of the grid in the X direction.
+     * @param   nbY
+     *          The size of the grid in the Y direction.
+     * @param   nbZ
+     *          The size of the grid in the Z direction.
+     * @param   isWalkable
+     *          The predicate deciding whether the cube with an index is walkable.
+     *
+     * @throws  IllegalArgumentException
+     *          If the predicate isn't effective.
+     */
+    public JumpPointPathFinder(int nbX, int nbY, int nbZ, IntPredicate isWalkable) throws IllegalArgumentException {
+        if (isWalkable == null)
+            throw new IllegalArgumentException("isWalkable isn't effective");
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.nbXY = nbX * nbY;
+        this.isWalkable = isWalkable;
+
+        int size = nbXY * nbZ;
+        this.stamp = new int[size];
+        this.costSoFar = new float[size];
+        this.cameFrom = new int[size];
+        this.closed = new boolean[size];
+    }
+
+    /**
+     * Calculates a shortest path from start to target.
+     *
+     * @param   start
+     *          The index of the start cube, it doesn't need to be walkable.
+     * @param   target
+     *          The index of the target cube.
+     *
+     * @return  The indices of the cubes on the path, the first element is start and the last is target.
+     *          Each cube after start is walkable and neighbours the previous cube.
+     *          If no path exists the result is null.
+     */
+    public IntList getPath(int start, int target) {
+        newGeneration();
+        heapSize = 0;
+        expandedNodes = 0;
+        this.target = target;
+        open(start, 0f, start);
+
+        while (heapSize > 0) {
+            int current = (int) poll();
+            if (closed[current])
+                continue; // a cheaper entry of the node was expanded before
+            if (current == target)
+                return buildPath(start, target);
+            closed[current] = true;
+            expandedNodes++;
+
+            int x = current % nbX, y = (current / nbX) % nbY, z = current / nbXY;
+            if (current == start) {
+                for (int d = 0; d < 26; d++)
+                    jumpFrom(current, x, y, z, d);
+            } else {
+                int d = direction(cameFrom[current], current);
+                for (int q : NATURAL[d])
+                    jumpFrom(current, x, y, z, q);
+                for (int i = 0; i < FORCED[d].length; i++)
+                    if (isForced(x, y, z, FORCED[d][i], ALTERNATIVES[d][i]))
+                        jumpFrom(current, x, y, z, FORCED[d][i]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of jump points expanded by the last search.
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    //<editor-fold desc="Jumps">
+    /**
+     * Jumps from the given cube in the given direction and adds the jump point found to the open set.
+     */
+    private void jumpFrom(int node, int x, int y, int z, int d) {
+        int jumpPoint = jump(x, y, z, d);
+        if (jumpPoint == NO_JUMP || closed[jumpPoint] && stamp[jumpPoint] == generation)
+            return;
+        int steps = Math.max(Math.abs(jumpPoint % nbX - x),
+                Math.max(Math.abs((jumpPoint / nbX) % nbY - y), Math.abs(jumpPoint / nbXY - z)));
+        float newCost = costSoFar[node] + steps * DIRECTION_COST[d];
+        if (stamp[jumpPoint] != generation) {
+            open(jumpPoint, newCost, node);
+        } else if (newCost < costSoFar[jumpPoint]) {
+            costSoFar[jumpPoint] = newCost;
+            cameFrom[jumpPoint] = node;
+            push(jumpPoint, newCost + estimate(jumpPoint));
+        }
+    }
+
+    /**
+     * Moves from the given cube in the given direction until a jump point is found.
+     *
+     * @return  The index of the jump point, or NO_JUMP if an unwalkable cube is reached first.
+     */
+    private int jump(int x, int y, int z, int d) {
+        int[] dir = DIRECTIONS[d];
+        while (true) {
+            x += dir[0];
+            y += dir[1];
+            z += dir[2];
+            if (!isWalkable(x, y, z))
+                return NO_JUMP;
+            int index = x + y * nbX + z * nbXY;
+            if (index == target)
+                return index;
+            for (int i = 0; i < FORCED[d].length; i++)
+                if (isForced(x, y, z, FORCED[d][i], ALTERNATIVES[d][i]))
+                    return index;
+            for (int part : PARTS[d])
+                if (jump(x, y, z, part) != NO_JUMP)
+                    return index;
+        }
+    }
+
+    /**
+     * Returns whether the neighbour of the given cube in the given direction is walkable,
+     * while none of its alternatives is.
+     */
+    private boolean isForced(int x, int y, int z, int q, int[][] alternatives) {
+        int[] dir = DIRECTIONS[q];
+        if (!isWalkable(x + dir[0], y + dir[1], z + dir[2]))
+            return false;
+        for (int[] r : alternatives)
+            if (isWalkable(x + r[0], y + r[1], z + r[2]))
+                return false;
+        return true;
+    }
+
+    private boolean isWalkable(int x, int y, int z) {
+        return x >= 0 && x < nbX && y >= 0 && y < nbY && z >= 0 && z < nbZ && isWalkable.test(x + y * nbX + z * nbXY);
+    }
+
+    /**
+     * Returns the index of the direction of the line from one cube to another.
+     */
+    private int direction(int from, int to) {
+        int dx = Integer.signum(to % nbX - from % nbX);
+        int dy = Integer.signum((to / nbX) % nbY - (from / nbX) % nbY);
+        int dz = Integer.signum(to / nbXY - from / nbXY);
+        int i = (dx + 1) + (dy + 1) * 3 + (dz + 1) * 9;
+        return i > 13 ? i - 1 : i; // the directions skip (0, 0, 0)
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Helpers">
+    private float estimate(int node) {
+        return (float) Heuristic.OCTILE.estimate(node % nbX - target % nbX, (node / nbX) % nbY - (target / nbX) % nbY,
+                node / nbXY - target / nbXY);
+    }
+
+    /**
+     * Returns the path through the jump points, with all cubes between them.
+     */
+    private IntList buildPath(int start, int end) {
+        IntList path = new IntList();
+        for (int current = end; current != start; current = cameFrom[current]) {
+            int from = cameFrom[current];
+            int[] dir = DIRECTIONS[direction(from, current)];
+            int step = dir[0] + dir[1] * nbX + dir[2] * nbXY;
+            for (int cube = current; cube != from; cube -= step)
+                path.add(cube);
+        }
+        path.add(start);
+        // reverse, so the path starts at start.
+        for (int i = 0, j = path.size() - 1; i < j; i++, j--) {
+            int tmp = path.get(i);
+            path.set(i, path.get(j));
+            path.set(j, tmp);
+        }
+        return path;
+    }
+
+    private void open(int node, float cost, int from) {
+        stamp[node] = generation;
+        closed[node] = false;
+        costSoFar[node] = cost;
+        cameFrom[node] = from;
+        push(node, cost + estimate(node));
+    }
+
+    private void newGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    private static boolean isPart(int[] part, int[] whole) {
+        for (int i = 0; i < 3; i++)
+            if (part[i] != 0 && part[i] != whole[i])
+                return false;
+        return true;
+    }
+
+    private static boolean isStep(int[] offset) {
+        return Math.abs(offset[0]) <= 1 && Math.abs(offset[1]) <= 1 && Math.abs(offset[2]) <= 1
+                && (offset[0] != 0 || offset[1] != 0 || offset[2] != 0);
+    }
+
+    private static double cost(int[] offset) {
+        return Math.sqrt(offset[0] * offset[0] + offset[1] * offset[1] + offset[2] * offset[2]);
+    }
+
+    private static int[] negate(int[] a) {
+        return new int[] {-a[0], -a[1], -a[2]};
+    }
+
+    private static int[] subtract(int[] a, int[] b) {
+        return new int[] {a[0] - b[0], a[1] - b[1], a[2] - b[2]};
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Heap">
+    /**
+     * Adds an entry to the open set, the bits of a non negative float are ordered like the float itself.
+     */
+    private void push(int node, float key) {
+        if (heapSize == heap.length)
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        long entry = ((long) Float.floatToIntBits(key) << 32) | node;
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry)
+                break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private long poll() {
+        long result = heap[0];
+        long last = heap[--heapSize];
+        int i = 0, half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child])
+                child++;
+            if (last <= heap[child])
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (heapSize > 0)
+            heap[i] = last;
+        return result;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,225 @@
+package hillbillies.model.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Cache of paths between cubes of a 26-connected 3D grid, indexed like the grid.
+ *
+ * A cached path to a target is reused for every start on the path or next to it, the result is then
+ * the start followed by the end of the cached path. Each entry remembers the terrain version it was
+ * checked against, when the version changed the cubes of the path are checked again and the entry
+ * is dropped if one of them isn't walkable anymore.
+ *
+ * @invar   The number of entries is at most the capacity.
+ */
+public class PathCache {
+
+    /**
+     * A cached path.
+     */
+    private static final class Entry {
+        private final long key;
+        private final IntList path;
+        private long version;
+
+        Entry(long key, IntList path, long version) {
+            this.key = key;
+            this.path = path;
+            this.version = version;
+        }
+    }
+
+    private final int nbX, nbY;
+    private final int capacity;
+    private final IntPredicate isWalkable;
+
+    /**
+     * The entries by (start, target), in least recently used order.
+     */
+    private final LinkedHashMap<Long, Entry> entries;
+    /**
+     * The entries by target.
+     */
+    private final Map<Integer, List<Entry>> byTarget;
+
+    private long hits, misses, evictions;
+
+    /**
+     * Creates a new empty cache.
+     *
+     * @param   nbX
+     *          The size of the grid in the X direction.
+     * @param   nbY
+     *          The size of the grid in the Y direction.
+     * @param   capacity
+     *          The maximum number of cached paths.
+     * @param   isWalkable
+     *          The predicate deciding whether the cube with an index is walkable.
+     *
+     * @throws  IllegalArgumentException
+     *          If the capacity isn't positive or the predicate isn't effective.
+     */
+    public PathCache(int nbX, int nbY, int capacity, IntPredicate isWalkable) throws IllegalArgumentException {
+        if (capacity <= 0 || isWalkable == null)
+            throw new IllegalArgumentException("invalid cache arguments");
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.capacity = capacity;
+        this.isWalkable = isWalkable;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.byTarget = new HashMap<>();
+    }
+
+    /**
+     * Returns a cached path from start to target.
+     *
+     * @param   start
+     *          The index of the start cube.
+     * @param   target
+     *          The index of the target cube.
+     * @param   version
+     *          The current version of the terrain.
+     *
+     * @return  A path of which the first element is start and the last is target, built from a cached path
+     *          that passes through or next to the start. Null if no such path is cached.
+     *          The result must not be modified.
+     */
+    public IntList get(int start, int target, long version) {
+        List<Entry> candidates = byTarget.get(target);
+        if (candidates != null) {
+            Entry exact = entries.get(key(start, target));
+            if (exact != null && isValid(exact, version)) {
+                hits++;
+                return exact.path;
+            }
+            // join the cached path at the cube closest to the target that is the start or next to it.
+            // copied because invalid entries are removed while iterating.
+            for (Entry entry : new ArrayList<>(candidates)) {
+                if (!isValid(entry, version))
+                    continue;
+                IntList path = entry.path;
+                for (int i = path.size() - 1; i >= 1; i--) {
+                    int cube = path.get(i);
+                    if (cube == start || isNextTo(cube, start)) {
+                        entries.get(entry.key); // mark as recently used
+                        hits++;
+                        IntList result = new IntList(path.size() - i + 1);
+                        if (cube != start)
+                            result.add(start);
+                        for (int j = i; j < path.size(); j++)
+                            result.add(path.get(j));
+                        return result;
+                    }
+                }
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Adds a path to the cache, evicting the least recently used path if the cache is full.
+     *
+     * @param   path
+     *          The path, the first element is the start and the last is the target.
+     * @param   version
+     *          The version of the terrain the path was calculated for.
+     *
+     * @post    The path is cached, the cache doesn't hold more paths than its capacity.
+     */
+    public void put(IntList path, long version) {
+        int start = path.get(0), target = path.get(path.size() - 1);
+        remove(entries.get(key(start, target)));
+        if (entries.size() >= capacity) {
+            remove(entries.values().iterator().next());
+            evictions++;
+        }
+        Entry entry = new Entry(key(start, target), path, version);
+        entries.put(entry.key, entry);
+        byTarget.computeIfAbsent(target, t -> new ArrayList<>()).add(entry);
+    }
+
+    /**
+     * Removes all paths from the cache.
+     */
+    public void clear() {
+        entries.clear();
+        byTarget.clear();
+    }
+
+    //<editor-fold desc="Statistics">
+    /**
+     * Returns the number of lookups that returned a path.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that didn't return a path.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of paths removed from the cache, because it was full or the path became invalid.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of cached paths.
+     */
+    public int size() {
+        return entries.size();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Helpers">
+    /**
+     * Checks whether the path of the entry is still walkable and removes it if it isn't.
+     */
+    private boolean isValid(Entry entry, long version) {
+        if (entry.version == version)
+            return true;
+        IntList path = entry.path;
+        for (int i = 1; i < path.size(); i++) {
+            if (!isWalkable.test(path.get(i))) {
+                remove(entry);
+                evictions++;
+                return false;
+            }
+        }
+        entry.version = version;
+        return true;
+    }
+
+    private void remove(Entry entry) {
+        if (entry == null)
+            return;
+        entries.remove(entry.key);
+        int target = entry.path.get(entry.path.size() - 1);
+        List<Entry> list = byTarget.get(target);
+        list.remove(entry);
+        if (list.isEmpty())
+            byTarget.remove(target);
+    }
+
+    private boolean isNextTo(int a, int b) {
+        int nbXY = nbX * nbY;
+        return Math.abs(a % nbX - b % nbX) <= 1 && Math.abs((a / nbX) % nbY - (b / nbX) % nbY) <= 1
+                && Math.abs(a / nbXY - b / nbXY) <= 1;
+    }
+
+    private static long key(int start, int target) {
+        return ((long) start << 32) | (target & 0xffffffffL);
+    }
+    //</editor-fold>
+}
@@ -21,12 +21,18 @@ public class PathFinder<T> {
      */
     private class PriorityData implements Comparable<PriorityData> {
 
-        private final int priority;
+        private final double priority;
+        private final double heuristic; // orders equal priorities, the data closest to the target comes first
         private final T vector;
 
-        PriorityData(int priority, T vector) {
+        PriorityData(double priority, T vector) {
+            this(priority, 0, vector);
+        }
+
+        PriorityData(double priority, double heuristic, T vector) {
             this.vector = vector;
             this.priority = priority;
+            this.heuristic = heuristic;
         }
 
         @Basic @Immutable
@@ -36,14 +42,15 @@ public class PathFinder<T> {
 
         @Override
         public int compareTo(PriorityData o) {
-            return Integer.valueOf(priority).compareTo(o.priority);
+            int result = Double.compare(priority, o.priority);
+            return result != 0 ? result : Double.compare(heuristic, o.heuristic);
         }
     }
 
     public interface PathGlue<T> {
         Stream<T> getNeighbours(T pos);
         double getCost(T a, T b);
-        int getHeuristic(T a, T b);
+        double getHeuristic(T a, T b);
     }
 
     private final PathGlue<T> glue;
@@ -87,8 +94,8 @@ public class PathFinder<T> {
                 double newCost = costSoFar.get(current) + glue.getCost(current, next);
                 if (!costSoFar.containsKey(next) || newCost < costSoFar.get(next)) {
                     costSoFar.put(next, newCost);
-                    int priority = (int)newCost + glue.getHeuristic(target, next);
-                    frontier.add(new PriorityData(priority, next));
+                    double heuristic = glue.getHeuristic(target, next);
+                    frontier.add(new PriorityData(newCost + heuristic, heuristic, next));
                     cameFrom.put(next, current);
                 }
             });
@@ -134,8 +141,8 @@ public class PathFinder<T> {
                 double newCost = costSoFar.get(current) + glue.getCost(current, next);
                 if (!costSoFar.containsKey(next) || newCost < costSoFar.get(next)) {
                     costSoFar.put(next, newCost);
-                    int priority = (int)newCost + glue.getHeuristic(target, next);
-                    frontier.add(new PriorityData(priority, next));
+                    double heuristic = glue.getHeuristic(target, next);
+                    frontier.add(new PriorityData(newCost + heuristic, heuristic, next));
                 }
             });
         }
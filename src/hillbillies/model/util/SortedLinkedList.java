@@ -1,8 +1,10 @@
 package hillbillies.model.util;
 
 import java.util.AbstractCollection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
 
 /**
@@ -10,6 +12,7 @@ import java.util.ListIterator;
  */
 public class SortedLinkedList<T extends Comparable<? super T>> extends AbstractCollection<T> {
     private final LinkedList<T> backend;
+    private final List<T> view;
 
     /**
      * Creates a new sorted linked list.
@@ -19,6 +22,7 @@ public class SortedLinkedList<T extends Comparable<? super T>> extends AbstractC
      */
     public SortedLinkedList(SortedLinkedList<T> other) {
         backend = new LinkedList<>(other);
+        view = Collections.unmodifiableList(backend);
     }
 
     /**
@@ -26,6 +30,7 @@ public class SortedLinkedList<T extends Comparable<? super T>> extends AbstractC
      */
     public SortedLinkedList() {
         backend = new LinkedList<>();
+        view = Collections.unmodifiableList(backend);
     }
 
     /**
@@ -84,6 +89,15 @@ public class SortedLinkedList<T extends Comparable<? super T>> extends AbstractC
         return backend.get(idx);
     }
 
+    /**
+     * Returns a read-only view of the list, which follows the changes of the list.
+     *
+     * @return  An unmodifiable list with the elements of this list in the same order.
+     */
+    public List<T> asList() {
+        return view;
+    }
+
     /**
      * Returns whether the list is sorted.
      *
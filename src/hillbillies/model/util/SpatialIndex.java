@@ -0,0 +1,299 @@
+package hillbillies.model.util;
+
+import hillbillies.model.vector.IntVector;
+import hillbillies.model.vector.Vector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Uniform grid of the positions of objects in a 3D world, for queries that only look at nearby objects.
+ *
+ * The world is divided in cells of cellSize^3 cubes, each cell keeps the objects positioned in it.
+ * Queries only visit the cells overlapping the queried region, in order of the cells and then of insertion.
+ *
+ * @invar   Each object in the index is in the cell of its position.
+ */
+public class SpatialIndex<T> {
+
+    private final int cellSize;
+    private final int nbCellsX, nbCellsY, nbCellsZ;
+
+    /**
+     * The objects in each cell, null for cells that never contained an object.
+     */
+    private final List<List<T>> cells;
+    /**
+     * The positions of all objects in the index.
+     */
+    private final Map<T, Vector> positions;
+
+    /**
+     * Creates a new empty index for a world of the given size.
+     *
+     * @param   maxX
+     *          The number of cubes in the X direction.
+     * @param   maxY
+     *          The number of cubes in the Y direction.
+     * @param   maxZ
+     *          The number of cubes in the Z direction.
+     * @param   cellSize
+     *          The size of a cell in cubes.
+     *
+     * @throws  IllegalArgumentException
+     *          If a size isn't positive.
+     */
+    public SpatialIndex(int maxX, int maxY, int maxZ, int cellSize) throws IllegalArgumentException {
+        if (maxX <= 0 || maxY <= 0 || maxZ <= 0 || cellSize <= 0)
+            throw new IllegalArgumentException("invalid index size");
+        this.cellSize = cellSize;
+        this.nbCellsX = (maxX + cellSize - 1) / cellSize;
+        this.nbCellsY = (maxY + cellSize - 1) / cellSize;
+        this.nbCellsZ = (maxZ + cellSize - 1) / cellSize;
+        int nbCells = nbCellsX * nbCellsY * nbCellsZ;
+        this.cells = new ArrayList<>(nbCells);
+        for (int i = 0; i < nbCells; i++)
+            cells.add(null);
+        this.positions = new HashMap<>();
+    }
+
+    //<editor-fold desc="Updates">
+    /**
+     * Adds an object to the index or moves it if it's already in the index.
+     *
+     * @param   object
+     *          The object to add.
+     * @param   position
+     *          The position of the object, it must lie in the world.
+     *
+     * @post    The index contains the object at the given position.
+     */
+    public void add(T object, Vector position) {
+        Vector old = positions.put(object, position);
+        int cell = getCell(position);
+        if (old != null) {
+            int oldCell = getCell(old);
+            if (oldCell == cell)
+                return;
+            cells.get(oldCell).remove(object);
+        }
+        List<T> objects = cells.get(cell);
+        if (objects == null) {
+            objects = new ArrayList<>(4);
+            cells.set(cell, objects);
+        }
+        objects.add(object);
+    }
+
+    /**
+     * Moves an object of the index to a new position.
+     *
+     * @param   object
+     *          The object to move.
+     * @param   position
+     *          The new position of the object.
+     *
+     * @post    If the object is in the index, it is at the given position.
+     *          Otherwise nothing happens.
+     */
+    public void update(T object, Vector position) {
+        if (positions.containsKey(object))
+            add(object, position);
+    }
+
+    /**
+     * Removes an object from the index.
+     *
+     * @param   object
+     *          The object to remove.
+     *
+     * @post    The index doesn't contain the object.
+     */
+    public void remove(T object) {
+        Vector old = positions.remove(object);
+        if (old != null)
+            cells.get(getCell(old)).remove(object);
+    }
+
+    /**
+     * Returns whether the index contains the given object.
+     */
+    public boolean contains(T object) {
+        return positions.containsKey(object);
+    }
+
+    /**
+     * Returns the number of objects in the index.
+     */
+    public int size() {
+        return positions.size();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Queries">
+    /**
+     * Performs the given action on each object positioned in one of the cubes of a box.
+     *
+     * @param   min
+     *          The cube with the smallest coordinates of the box.
+     * @param   max
+     *          The cube with the largest coordinates of the box, inclusive.
+     * @param   action
+     *          The action to perform.
+     */
+    public void forEachInBox(IntVector min, IntVector max, Consumer<? super T> action) {
+        int x0 = Math.max(0, min.getX() / cellSize), x1 = Math.min(nbCellsX - 1, max.getX() / cellSize);
+        int y0 = Math.max(0, min.getY() / cellSize), y1 = Math.min(nbCellsY - 1, max.getY() / cellSize);
+        int z0 = Math.max(0, min.getZ() / cellSize), z1 = Math.min(nbCellsZ - 1, max.getZ() / cellSize);
+        for (int cz = z0; cz <= z1; cz++) {
+            for (int cy = y0; cy <= y1; cy++) {
+                for (int cx = x0; cx <= x1; cx++) {
+                    List<T> objects = cells.get(cx + cy * nbCellsX + cz * nbCellsX * nbCellsY);
+                    if (objects == null)
+                        continue;
+                    for (T object : objects) {
+                        Vector pos = positions.get(object);
+                        if (isInBox(pos, min, max))
+                            action.accept(object);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an object positioned in the given cube that satisfies a condition.
+     *
+     * @param   x
+     *          The X coordinate of the cube.
+     * @param   y
+     *          The Y coordinate of the cube.
+     * @param   z
+     *          The Z coordinate of the cube.
+     * @param   condition
+     *          The condition the object must satisfy.
+     *
+     * @return  The first object in the cube satisfying the condition, in order of insertion,
+     *          or an empty optional if there is none.
+     */
+    public Optional<T> getFirstInCube(int x, int y, int z, Predicate<? super T> condition) {
+        List<T> objects = cells.get(clamp(x / cellSize, nbCellsX) + clamp(y / cellSize, nbCellsY) * nbCellsX
+                + clamp(z / cellSize, nbCellsZ) * nbCellsX * nbCellsY);
+        if (objects == null)
+            return Optional.empty();
+        for (T object : objects) {
+            Vector pos = positions.get(object);
+            if ((int) Math.floor(pos.getX()) == x && (int) Math.floor(pos.getY()) == y
+                    && (int) Math.floor(pos.getZ()) == z && condition.test(object))
+                return Optional.of(object);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the objects positioned in one of the cubes of a box.
+     *
+     * @param   min
+     *          The cube with the smallest coordinates of the box.
+     * @param   max
+     *          The cube with the largest coordinates of the box, inclusive.
+     *
+     * @return  A new list of the objects in the box.
+     */
+    public List<T> getInBox(IntVector min, IntVector max) {
+        List<T> result = new ArrayList<>();
+        forEachInBox(min, max, result::add);
+        return result;
+    }
+
+    /**
+     * Returns the objects within a distance of a position.
+     *
+     * @param   center
+     *          The position to measure from.
+     * @param   radius
+     *          The maximum distance.
+     *
+     * @return  A new list of the objects whose distance to center is at most radius.
+     */
+    public List<T> getInRadius(Vector center, double radius) {
+        List<T> result = new ArrayList<>();
+        IntVector min = center.add(-radius).toIntVector(), max = center.add(radius).toIntVector();
+        forEachInBox(min, max, object -> {
+            if (positions.get(object).subtract(center).norm() <= radius)
+                result.add(object);
+        });
+        return result;
+    }
+
+    /**
+     * Returns the nearest object satisfying a condition.
+     * The cells are visited in rings around the cell of the position, until no unvisited cell can be nearer.
+     *
+     * @param   position
+     *          The position to measure from.
+     * @param   condition
+     *          The condition the object must satisfy.
+     *
+     * @return  The object satisfying the condition with the smallest distance to the position,
+     *          or an empty optional if there is none.
+     */
+    public Optional<T> getNearest(Vector position, Predicate<? super T> condition) {
+        int cx = clamp((int) Math.floor(position.getX()) / cellSize, nbCellsX);
+        int cy = clamp((int) Math.floor(position.getY()) / cellSize, nbCellsY);
+        int cz = clamp((int) Math.floor(position.getZ()) / cellSize, nbCellsZ);
+        int maxRing = Math.max(nbCellsX, Math.max(nbCellsY, nbCellsZ));
+        T best = null;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int ring = 0; ring < maxRing; ring++) {
+            for (int z = cz - ring; z <= cz + ring; z++) {
+                for (int y = cy - ring; y <= cy + ring; y++) {
+                    for (int x = cx - ring; x <= cx + ring; x++) {
+                        boolean onRing = Math.abs(x - cx) == ring || Math.abs(y - cy) == ring || Math.abs(z - cz) == ring;
+                        if (!onRing || x < 0 || y < 0 || z < 0 || x >= nbCellsX || y >= nbCellsY || z >= nbCellsZ)
+                            continue;
+                        List<T> objects = cells.get(x + y * nbCellsX + z * nbCellsX * nbCellsY);
+                        if (objects == null)
+                            continue;
+                        for (T object : objects) {
+                            double distance = positions.get(object).subtract(position).norm();
+                            if (distance < bestDistance && condition.test(object)) {
+                                best = object;
+                                bestDistance = distance;
+                            }
+                        }
+                    }
+                }
+            }
+            // cells outside the visited rings are at least ring cells away from the position.
+            if (bestDistance <= ring * cellSize)
+                break;
+        }
+        return Optional.ofNullable(best);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Helpers">
+    private int getCell(Vector position) {
+        int x = clamp((int) position.getX() / cellSize, nbCellsX);
+        int y = clamp((int) position.getY() / cellSize, nbCellsY);
+        int z = clamp((int) position.getZ() / cellSize, nbCellsZ);
+        return x + y * nbCellsX + z * nbCellsX * nbCellsY;
+    }
+
+    private static int clamp(int cell, int nbCells) {
+        return Math.max(0, Math.min(nbCells - 1, cell));
+    }
+
+    private static boolean isInBox(Vector pos, IntVector min, IntVector max) {
+        return pos.getX() >= min.getX() && pos.getX() < max.getX() + 1
+                && pos.getY() >= min.getY() && pos.getY() < max.getY() + 1
+                && pos.getZ() >= min.getZ() && pos.getZ() < max.getZ() + 1;
+    }
+    //</editor-fold>
+}
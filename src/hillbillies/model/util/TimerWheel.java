@@ -0,0 +1,194 @@
+package hillbillies.model.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel, schedules objects to be due at a given time.
+ *
+ * Time is divided in ticks of the resolution. Each level has 64 slots, a slot of level l spans 64^l ticks.
+ * An object is kept in the lowest level whose slot still separates its tick from the current tick,
+ * and moves down a level when the current tick reaches its slot. Scheduling and cancelling take constant time,
+ * advancing takes time in the number of ticks passed and the number of objects due or moved down.
+ * Objects are due at the start of their tick, so they can be due up to one resolution early but never late.
+ *
+ * @invar   Each scheduled object is in exactly one slot.
+ */
+public class TimerWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int NB_SLOTS = 1 << SLOT_BITS;
+    private static final long SLOT_MASK = NB_SLOTS - 1;
+    private static final int NB_LEVELS = 4;
+    /**
+     * The slot of the objects past the highest level, and the slot of the objects due before the current tick.
+     */
+    private static final int OVERFLOW = NB_LEVELS * NB_SLOTS, EXPIRED = OVERFLOW + 1;
+
+    private final double resolution;
+    private final List<Set<T>> slots;
+    private final Map<T, Timer> timers;
+    /**
+     * The last tick that was advanced to, all objects due before or at this tick are expired.
+     */
+    private long currentTick;
+
+    private static final class Timer {
+        private final long tick;
+        private int slot;
+
+        private Timer(long tick) {
+            this.tick = tick;
+        }
+    }
+
+    /**
+     * Creates a new empty timer wheel, its time starts at 0.
+     *
+     * @param   resolution
+     *          The duration of a tick.
+     *
+     * @throws  IllegalArgumentException
+     *          If the resolution isn't positive.
+     */
+    public TimerWheel(double resolution) throws IllegalArgumentException {
+        if (!(resolution > 0))
+            throw new IllegalArgumentException("invalid resolution");
+        this.resolution = resolution;
+        this.slots = new ArrayList<>(EXPIRED + 1);
+        for (int i = 0; i <= EXPIRED; i++)
+            slots.add(new LinkedHashSet<>());
+        this.timers = new HashMap<>();
+    }
+
+    //<editor-fold desc="Updates">
+    /**
+     * Schedules an object, or reschedules it if it was already scheduled.
+     *
+     * @param   object
+     *          The object to schedule.
+     * @param   time
+     *          The time at which the object is due, objects due in the past are due at the next advance.
+     *
+     * @post    The wheel contains the object.
+     */
+    public void schedule(T object, double time) {
+        cancel(object);
+        Timer timer = new Timer(toTick(time));
+        timers.put(object, timer);
+        if (timer.tick <= currentTick) {
+            timer.slot = EXPIRED;
+            slots.get(EXPIRED).add(object);
+        } else {
+            place(object, timer);
+        }
+    }
+
+    /**
+     * Removes an object from the wheel.
+     *
+     * @param   object
+     *          The object to remove.
+     *
+     * @post    The wheel doesn't contain the object.
+     */
+    public void cancel(T object) {
+        Timer timer = timers.remove(object);
+        if (timer != null)
+            slots.get(timer.slot).remove(object);
+    }
+
+    /**
+     * Advances the time of the wheel and performs the given action on the objects that became due.
+     * The due objects are removed before the action is performed, so the action may schedule them again.
+     *
+     * @param   time
+     *          The new time of the wheel.
+     * @param   action
+     *          The action to perform on each due object.
+     *
+     * @post    The wheel doesn't contain objects due before or at the given time.
+     */
+    public void advance(double time, Consumer<? super T> action) {
+        long target = toTick(time);
+        List<T> due = new ArrayList<>();
+        expire(EXPIRED, due);
+        while (currentTick < target) {
+            if (timers.isEmpty()) {
+                currentTick = target;
+                break;
+            }
+            currentTick++;
+            cascade();
+            expire((int) (currentTick & SLOT_MASK), due);
+        }
+        for (T object : due)
+            action.accept(object);
+    }
+
+    /**
+     * Returns whether the wheel contains the given object.
+     */
+    public boolean contains(T object) {
+        return timers.containsKey(object);
+    }
+
+    /**
+     * Returns the number of objects in the wheel.
+     */
+    public int size() {
+        return timers.size();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Helpers">
+    private long toTick(double time) {
+        return (long) Math.floor(time / resolution);
+    }
+
+    /**
+     * Puts an object in the lowest level where the slot of its tick differs from the slot of the current tick.
+     * The tick of the object must not be before the current tick.
+     */
+    private void place(T object, Timer timer) {
+        long diff = timer.tick ^ currentTick;
+        int level = 0;
+        while (level < NB_LEVELS && (diff >>> (SLOT_BITS * (level + 1))) != 0)
+            level++;
+        timer.slot = level == NB_LEVELS ? OVERFLOW
+                : level * NB_SLOTS + (int) ((timer.tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        slots.get(timer.slot).add(object);
+    }
+
+    /**
+     * Moves the objects of the higher level slots the current tick entered down, highest level first.
+     */
+    private void cascade() {
+        for (int level = NB_LEVELS; level > 0; level--) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0)
+                continue;
+            int slot = level == NB_LEVELS ? OVERFLOW
+                    : level * NB_SLOTS + (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            Set<T> objects = slots.get(slot);
+            if (objects.isEmpty())
+                continue;
+            slots.set(slot, new LinkedHashSet<>());
+            for (T object : objects)
+                place(object, timers.get(object));
+        }
+    }
+
+    private void expire(int slot, List<T> due) {
+        Set<T> objects = slots.get(slot);
+        for (T object : objects)
+            timers.remove(object);
+        due.addAll(objects);
+        objects.clear();
+    }
+    //</editor-fold>
+}
@@ -6,6 +6,7 @@ import hillbillies.model.exceptions.InvalidCubeTypeException;
 import hillbillies.model.exceptions.InvalidPositionException;
 import hillbillies.model.unit.Unit;
 import hillbillies.model.vector.IntVector;
+import hillbillies.model.vector.Vector;
 import hillbillies.part2.listener.TerrainChangeListener;
 import ogp.framework.util.ModelException;
 
@@ -17,10 +18,18 @@ import java.util.Set;
  * Facade
  */
 public class Facade extends hillbillies.part1.facade.Facade implements IFacade {
+    /**
+     * The number of cubes the worlds of the game may expand for paths in one time step.
+     */
+    private static final int PATH_BUDGET = 8192;
+
     @Override
     public World createWorld(int[][][] terrainTypes, TerrainChangeListener modelListener) throws ModelException {
         try {
-            return new World(terrainTypes, modelListener);
+            World world = new World(terrainTypes, modelListener);
+            world.setPathBudget(PATH_BUDGET);
+            world.setPathThreads(Runtime.getRuntime().availableProcessors());
+            return world;
         } catch (InvalidCubeTypeException err) {
             throw new ModelException(err.getMessage(), err);
         }
@@ -163,4 +172,10 @@ public class Facade extends hillbillies.part1.facade.Facade implements IFacade {
     public Set<Log> getLogs(World world) throws ModelException {
         return world.getLogs();
     }
+
+    @Override
+    public Set<Object> getObjectsInBox(World world, double minX, double minY, double minZ,
+                                       double maxX, double maxY, double maxZ) throws ModelException {
+        return world.getObjectsInBox(new Vector(minX, minY, minZ), new Vector(maxX, maxY, maxZ));
+    }
 }
@@ -0,0 +1,95 @@
+package hillbillies.tests.benchmarks;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.model.util.BorderConnectivity;
+import hillbillies.model.vector.IntVector;
+import hillbillies.tests.util.WorldMaps;
+import hillbillies.util.ConnectedToBorder;
+
+/**
+ * Benchmark that mines a tunnel through the 50x50x50 world.
+ * It compares the provided ConnectedToBorder with BorderConnectivity and times the same tunnel in a World.
+ *
+ * Run from the project root.
+ */
+public class CaveInBenchmark {
+
+    private static final String MAP = "50x50x50.wrld";
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int[][][] types = WorldMaps.loadTerrain(MAP);
+        int nbX = types.length, nbY = types[0].length, nbZ = types[0][0].length;
+        int[][] tunnel = findTunnel(types);
+        System.out.println("tunnel of " + tunnel.length + " solid cubes at y=" + tunnel[0][1] + ", z=" + tunnel[0][2]);
+
+        for (int run = 0; run < RUNS; run++) {
+            ConnectedToBorder provided = new ConnectedToBorder(nbX, nbY, nbZ);
+            long start = System.nanoTime();
+            for (int x = 0; x < nbX; x++)
+                for (int y = 0; y < nbY; y++)
+                    for (int z = 0; z < nbZ; z++)
+                        if (!isSolid(types[x][y][z]))
+                            provided.changeSolidToPassable(x, y, z);
+            long loaded = System.nanoTime();
+            for (int[] cube : tunnel)
+                provided.changeSolidToPassable(cube[0], cube[1], cube[2]);
+            long mined = System.nanoTime();
+
+            BorderConnectivity connectivity = new BorderConnectivity(nbX, nbY, nbZ);
+            long start2 = System.nanoTime();
+            connectivity.initialize(index -> !isSolid(types[index % nbX][(index / nbX) % nbY][index / (nbX * nbY)]));
+            long loaded2 = System.nanoTime();
+            for (int[] cube : tunnel)
+                connectivity.changeSolidToPassable(cube[0], cube[1], cube[2]);
+            long mined2 = System.nanoTime();
+
+            long start3 = System.nanoTime();
+            World world = new World(types, (x, y, z) -> {});
+            long loaded3 = System.nanoTime();
+            for (int[] cube : tunnel)
+                if (Terrain.isSolid(world.getTerrain().getCubeType(new IntVector(cube))))
+                    world.getTerrain().breakCube(new IntVector(cube));
+            long mined3 = System.nanoTime();
+
+            System.out.printf("run %d: ConnectedToBorder load %.1f ms, tunnel %.1f ms | "
+                            + "BorderConnectivity load %.1f ms, tunnel %.1f ms | World load %.1f ms, tunnel %.1f ms%n",
+                    run, ms(loaded - start), ms(mined - loaded), ms(loaded2 - start2), ms(mined2 - loaded2),
+                    ms(loaded3 - start3), ms(mined3 - loaded3));
+        }
+    }
+
+    /**
+     * Returns the solid cubes of the straight line along x through the middle of the world,
+     * at the height with the most solid cubes that is closest to the middle.
+     */
+    private static int[][] findTunnel(int[][][] types) {
+        int bestY = types[0].length / 2, bestZ = 0, bestCount = -1;
+        for (int z = 1; z < types[0][0].length - 1; z++) {
+            int count = 0;
+            for (int x = 1; x < types.length - 1; x++)
+                if (isSolid(types[x][bestY][z]))
+                    count++;
+            int middle = types[0][0].length / 2;
+            if (count > bestCount || (count == bestCount && Math.abs(z - middle) < Math.abs(bestZ - middle))) {
+                bestCount = count;
+                bestZ = z;
+            }
+        }
+        int[][] tunnel = new int[bestCount][];
+        int i = 0;
+        for (int x = 1; x < types.length - 1; x++)
+            if (isSolid(types[x][bestY][bestZ]))
+                tunnel[i++] = new int[] {x, bestY, bestZ};
+        return tunnel;
+    }
+
+    private static boolean isSolid(int type) {
+        return type == Terrain.Type.ROCK.getId() || type == Terrain.Type.TREE.getId();
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,121 @@
+package hillbillies.tests.benchmarks;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.model.util.GridPathFinder;
+import hillbillies.model.util.Heuristic;
+import hillbillies.model.util.IntList;
+import hillbillies.model.util.PathFinder;
+import hillbillies.model.vector.IntVector;
+import hillbillies.tests.util.WorldMaps;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark that compares the heuristics of the pathfinders on random reachable pairs of walkable cubes.
+ * It reports the nodes expanded and the path cost per search, for the generic PathFinder and the GridPathFinder.
+ *
+ * Run from the project root, the arguments are the names of the world files (default all bundled maps).
+ */
+public class HeuristicBenchmark {
+
+    private static final String[] MAPS = {"15x15x15.wrld", "20x20x10.wrld", "20x20x40.wrld", "25x25x25.wrld",
+            "50x50x10.wrld", "50x50x50.wrld", "80x80x10.wrld", "80x80x80.wrld"};
+    private static final int PAIRS = 200;
+
+    private static long expanded;
+
+    public static void main(String[] args) throws Exception {
+        for (String map : args.length > 0 ? args : MAPS) {
+            World world = new World(WorldMaps.loadTerrain(map), (x, y, z) -> {});
+            Terrain terrain = world.getTerrain();
+            List<IntVector[]> pairs = findPairs(world, new Random(1));
+            System.out.println(map + ": " + pairs.size() + " reachable pairs");
+
+            for (Heuristic heuristic : Heuristic.values()) {
+                PathFinder<IntVector> pathFinder = new PathFinder<>(glue(terrain, heuristic));
+                expanded = 0;
+                double cost = 0;
+                for (IntVector[] pair : pairs)
+                    cost += cost(pathFinder.getPath(pair[0], pair[1]));
+                report("PathFinder", heuristic, expanded, cost, pairs.size());
+
+                GridPathFinder gridPathFinder = new GridPathFinder(terrain.getMaxX(), terrain.getMaxY(),
+                        terrain.getMaxZ(), terrain::getWalkableNeighbours);
+                gridPathFinder.setHeuristic(heuristic);
+                expanded = 0;
+                cost = 0;
+                for (IntVector[] pair : pairs) {
+                    IntList path = gridPathFinder.getPath(terrain.getIndex(pair[0]), terrain.getIndex(pair[1]));
+                    expanded += gridPathFinder.getExpandedNodes();
+                    for (int i = 1; i < path.size(); i++)
+                        cost += terrain.getPosition(path.get(i)).subtract(terrain.getPosition(path.get(i - 1))).norm();
+                }
+                report("GridPathFinder", heuristic, expanded, cost, pairs.size());
+            }
+        }
+    }
+
+    private static PathFinder.PathGlue<IntVector> glue(Terrain terrain, Heuristic heuristic) {
+        return new PathFinder.PathGlue<IntVector>() {
+            @Override
+            public Stream<IntVector> getNeighbours(IntVector pos) {
+                expanded++;
+                Stream.Builder<IntVector> neighbours = Stream.builder();
+                terrain.forEachNeighbour(terrain.getIndex(pos), n -> {
+                    if (terrain.isWalkable(n))
+                        neighbours.add(terrain.getPosition(n));
+                });
+                return neighbours.build();
+            }
+
+            @Override
+            public double getCost(IntVector a, IntVector b) {
+                return a.subtract(b).norm();
+            }
+
+            @Override
+            public double getHeuristic(IntVector a, IntVector b) {
+                IntVector diff = a.subtract(b);
+                return heuristic.estimate(diff.getX(), diff.getY(), diff.getZ());
+            }
+        };
+    }
+
+    private static double cost(Deque<IntVector> path) {
+        double cost = 0;
+        IntVector last = null;
+        for (IntVector pos : path) {
+            if (last != null)
+                cost += pos.subtract(last).norm();
+            last = pos;
+        }
+        return cost;
+    }
+
+    private static void report(String name, Heuristic heuristic, long expanded, double cost, int searches) {
+        System.out.printf("  %-14s %-9s %10.1f nodes expanded, %8.3f path cost per search%n", name, heuristic,
+                (double) expanded / searches, cost / searches);
+    }
+
+    private static List<IntVector[]> findPairs(World world, Random random) {
+        List<IntVector> walkable = new ArrayList<>();
+        for (int x = 0; x < world.getTerrain().getMaxX(); x++)
+            for (int y = 0; y < world.getTerrain().getMaxY(); y++)
+                for (int z = 0; z < world.getTerrain().getMaxZ(); z++)
+                    if (world.getTerrain().isWalkable(x, y, z))
+                        walkable.add(new IntVector(x, y, z));
+        List<IntVector[]> pairs = new ArrayList<>();
+        while (pairs.size() < PAIRS) {
+            IntVector a = walkable.get(random.nextInt(walkable.size()));
+            IntVector b = walkable.get(random.nextInt(walkable.size()));
+            if (world.isReachable(a, b))
+                pairs.add(new IntVector[] {a, b});
+        }
+        return pairs;
+    }
+}
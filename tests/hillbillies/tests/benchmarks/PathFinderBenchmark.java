@@ -0,0 +1,76 @@
+package hillbillies.tests.benchmarks;
+
+import hillbillies.model.World;
+import hillbillies.model.vector.IntVector;
+import hillbillies.tests.util.WorldMaps;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark that compares the generic PathFinder with the path modes of the world
+ * on random reachable pairs of walkable cubes.
+ * It reports the time and the bytes allocated per search.
+ *
+ * Run from the project root, the optional argument is the name of the world file (default 50x50x50.wrld).
+ */
+public class PathFinderBenchmark {
+
+    private static final String MAP = "50x50x50.wrld";
+    private static final int PAIRS = 200;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        World world = new World(WorldMaps.loadTerrain(args.length > 0 ? args[0] : MAP), (x, y, z) -> {});
+        List<IntVector[]> pairs = findPairs(world, new Random(1));
+        System.out.println(pairs.size() + " reachable pairs");
+
+        for (int run = 0; run < RUNS; run++) {
+            long bytes = allocatedBytes(), start = System.nanoTime();
+            for (IntVector[] pair : pairs)
+                world.getPathFinder().getPath(pair[0], pair[1]);
+            long time = System.nanoTime() - start;
+            report(run, "PathFinder", time, allocatedBytes() - bytes, pairs.size());
+
+            for (World.PathMode mode : World.PathMode.values()) {
+                world.setPathMode(mode);
+                world.getPathCache().clear();
+                bytes = allocatedBytes();
+                start = System.nanoTime();
+                for (IntVector[] pair : pairs)
+                    world.getPath(pair[0], pair[1]);
+                time = System.nanoTime() - start;
+                report(run, mode.toString(), time, allocatedBytes() - bytes, pairs.size());
+            }
+        }
+    }
+
+    private static void report(int run, String name, long nanos, long bytes, int searches) {
+        System.out.printf("run %d: %-12s %8.3f ms, %8d bytes per search%n", run, name,
+                nanos / 1e6 / searches, bytes / searches);
+    }
+
+    private static List<IntVector[]> findPairs(World world, Random random) {
+        List<IntVector> walkable = new ArrayList<>();
+        for (int x = 0; x < world.getTerrain().getMaxX(); x++)
+            for (int y = 0; y < world.getTerrain().getMaxY(); y++)
+                for (int z = 0; z < world.getTerrain().getMaxZ(); z++)
+                    if (world.getTerrain().isWalkable(x, y, z))
+                        walkable.add(new IntVector(x, y, z));
+        List<IntVector[]> pairs = new ArrayList<>();
+        while (pairs.size() < PAIRS) {
+            IntVector a = walkable.get(random.nextInt(walkable.size()));
+            IntVector b = walkable.get(random.nextInt(walkable.size()));
+            if (world.isReachable(a, b))
+                pairs.add(new IntVector[] {a, b});
+        }
+        return pairs;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
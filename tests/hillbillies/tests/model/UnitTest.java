@@ -224,6 +224,17 @@ public class UnitTest {
         assertIntegerPositionEquals(5, 5, 1, unit.getPosition().toIntVector().toIntArray());
     }
 
+    @Test
+    public void testMoveToBlockedPath() throws Exception {
+        unit.setPosition(Vector.ZERO.add(Terrain.Lc/2));
+        unit.moveTo(new IntVector(12, 0, 0));
+        advanceTimeFor(unit, 1, 0.1);
+        for (int y = 0; y < 3; y++)
+            world.getTerrain().setCubeType(new IntVector(6, y, 0), Terrain.Type.ROCK);
+        advanceTimeFor(unit, 20, 0.1);
+        assertIntegerPositionEquals(12, 0, 0, unit.getPosition().toIntVector().toIntArray());
+    }
+
     @Test
     public void testGetSpeedScalar() throws Exception {
         // can we test this, getSpeed is private?
@@ -3,10 +3,14 @@ package hillbillies.tests.model;
 import hillbillies.model.*;
 import hillbillies.model.unit.Unit;
 import hillbillies.model.vector.IntVector;
+import hillbillies.model.vector.Vector;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
@@ -31,6 +35,33 @@ public class WorldTest {
         world.advanceTime(2.0);
     }
 
+    @Test
+    public void testDefaultPathMode() throws Exception {
+        assertEquals(World.PathMode.DIRECT, world.getPathMode());
+        world.setPathMode(World.PathMode.HIERARCHICAL);
+        assertEquals(World.PathMode.HIERARCHICAL, world.getPathMode());
+    }
+
+    @Test
+    public void testGetPathInEachMode() throws Exception {
+        World world = new World(new int[10][10][1], (x, y, z) -> {});
+        IntVector target = new IntVector(9, 0, 0);
+        world.setPathMode(World.PathMode.HIERARCHICAL);
+        assertEquals(10, world.getPath(new IntVector(0, 0, 0), target).size());
+        for (int y = 0; y < 9; y++)
+            world.getTerrain().setCubeType(new IntVector(5, y, 0), Terrain.Type.ROCK);
+
+        World.PathMode[] modes = World.PathMode.values();
+        for (int i = 0; i < modes.length; i++) {
+            world.setPathMode(modes[i]);
+            // a different start for each mode, so no path comes from the path cache.
+            List<IntVector> path = new ArrayList<>(world.getPath(new IntVector(0, i, 0), target));
+            assertEquals(new IntVector(0, i, 0), path.get(0));
+            assertEquals(target, path.get(path.size() - 1));
+            assertTrue(path.contains(new IntVector(5, 9, 0)));
+        }
+    }
+
     @Test
     public void testIsValidPosition() throws Exception {
         assertTrue(world.getTerrain().isValidPosition(new IntVector(1, 1, 1)));
@@ -94,6 +125,39 @@ public class WorldTest {
         assertTrue(world.getTerrain().getBoulders(boulder.getPosition().toIntVector()).contains(boulder));
     }
 
+    @Test
+    public void testInitialCaveInDrops() throws Exception {
+        int[][][] types = new int[7][7][7];
+        for (int x = 2; x <= 4; x++)
+            for (int y = 2; y <= 4; y++)
+                for (int z = 2; z <= 4; z++)
+                    types[x][y][z] = (x + y + z) % 2 == 0 ? Terrain.Type.ROCK.getId() : Terrain.Type.TREE.getId();
+
+        int dropped = 0;
+        for (int i = 0; i < 10; i++) {
+            World caved = new World(types, (x, y, z) -> {});
+            for (int x = 2; x <= 4; x++)
+                for (int y = 2; y <= 4; y++)
+                    for (int z = 2; z <= 4; z++)
+                        assertEquals(Terrain.Type.AIR, caved.getTerrain().getCubeType(new IntVector(x, y, z)));
+            for (Boulder boulder : caved.getBoulders()) {
+                IntVector cube = boulder.getPosition().toIntVector();
+                assertEquals(Terrain.Type.ROCK.getId(), types[cube.getX()][cube.getY()][cube.getZ()]);
+                assertTrue(caved.getTerrain().getBoulders(cube).contains(boulder));
+            }
+            for (Log log : caved.getLogs()) {
+                IntVector cube = log.getPosition().toIntVector();
+                assertEquals(Terrain.Type.TREE.getId(), types[cube.getX()][cube.getY()][cube.getZ()]);
+                assertTrue(caved.getTerrain().getLogs(cube).contains(log));
+            }
+            int objects = caved.getBoulders().size() + caved.getLogs().size();
+            assertEquals(objects, caved.getGameObjectsInBox(IntVector.ZERO, new IntVector(6, 6, 6)).size());
+            dropped += objects;
+        }
+        // each of the 270 broken cubes drops an object with a chance of 0.25.
+        assertTrue(dropped > 0);
+    }
+
     @Test
     public void testAddLog() throws Exception {
         IntVector pos = new IntVector(1, 1, 1);
@@ -161,6 +225,26 @@ public class WorldTest {
         assertNotEquals(0, world.getTerrain().getLogs(pos).size());
     }
 
+    @Test
+    public void testCubeObjectCounts() throws Exception {
+        IntVector pos = new IntVector(1, 1, 1);
+        Set<Log> logs = world.getLogs();
+        world.addGameObject(new Log(world, pos));
+        world.addGameObject(new Log(world, pos));
+        world.addGameObject(new Boulder(world, pos));
+        assertEquals(2, world.getTerrain().getNbLogs(pos));
+        assertEquals(1, world.getTerrain().getNbBoulders(pos));
+        assertEquals(0, world.getTerrain().getNbLogs(IntVector.ZERO));
+        assertEquals(2, logs.size());
+
+        world.consumeLog(pos);
+        world.consumeBoulder(pos);
+        assertEquals(1, world.getTerrain().getNbLogs(pos));
+        assertEquals(0, world.getTerrain().getNbBoulders(pos));
+        assertEquals(1, logs.size());
+        assertTrue(world.getBoulders().isEmpty());
+    }
+
     @Test
     public void testGetFactions() throws Exception {
         assertEquals(0, world.getFactions().size());
@@ -191,6 +275,95 @@ public class WorldTest {
         assertTrue(succeeded[0]);
     }
 
+    @Test
+    public void testSleepingObject() throws Exception {
+        World world = new World(new int[3][3][3], (x, y, z) -> {});
+        world.getTerrain().setCubeType(new IntVector(0, 0, 0), Terrain.Type.ROCK);
+        final int[] calls = {0};
+        GameObject object = new GameObject(world, new IntVector(0, 0, 1)) {
+            @Override
+            public void advanceTime(double dt) {
+                calls[0]++;
+                super.advanceTime(dt);
+            }
+        };
+        world.addGameObject(object);
+        world.advanceTime(0.1);
+        world.advanceTime(0.1);
+        // the object rests on the rock, so it is only advanced once.
+        assertEquals(1, calls[0]);
+
+        world.getTerrain().setCubeType(new IntVector(0, 0, 0), Terrain.Type.AIR);
+        for (int i = 0; i < 20; i++)
+            world.advanceTime(0.1);
+        assertEquals(0.5, object.getPosition().getZ(), 1e-6);
+        int fallCalls = calls[0];
+        world.advanceTime(0.1);
+        assertEquals(fallCalls, calls[0]);
+    }
+
+    @Test
+    public void testSleepingUnit() throws Exception {
+        World world = new World(new int[3][3][3], (x, y, z) -> {});
+        world.getTerrain().setCubeType(new IntVector(1, 0, 0), Terrain.Type.TREE);
+        final int[] calls = {0};
+        Unit unit = new Unit("Test", 0, 0, 0, 50, 50, 50, 50) {
+            @Override
+            public void advanceTime(double dt) {
+                calls[0]++;
+                super.advanceTime(dt);
+            }
+        };
+        world.addUnit(unit);
+        unit.workAt(new IntVector(1, 0, 0));
+        // working takes 500 / 50 = 10 seconds, the unit sleeps until the work is almost done.
+        for (int i = 0; i < 95; i++)
+            world.advanceTime(0.1);
+        assertTrue(unit.isWorking());
+        assertEquals(Terrain.Type.TREE, world.getTerrain().getCubeType(new IntVector(1, 0, 0)));
+        assertEquals(1, calls[0]);
+
+        for (int i = 0; i < 6; i++)
+            world.advanceTime(0.1);
+        assertFalse(unit.isWorking());
+        assertEquals(Terrain.Type.AIR, world.getTerrain().getCubeType(new IntVector(1, 0, 0)));
+        assertTrue(calls[0] <= 4);
+    }
+
+    @Test
+    public void testWakeUnitDuringStep() throws Exception {
+        World world = new World(new int[3][3][3], (x, y, z) -> {});
+        world.getTerrain().setCubeType(new IntVector(1, 0, 0), Terrain.Type.TREE);
+        Unit worker = new Unit("Worker", 0, 0, 0, 50, 50, 50, 50);
+        world.addUnit(worker);
+        worker.workAt(new IntVector(1, 0, 0));
+        world.advanceTime(0.1);
+        final boolean[] wake = {false};
+        Unit waker = new Unit("Waker", 2, 2, 0, 50, 50, 50, 50) {
+            @Override
+            public void advanceTime(double dt) {
+                if (wake[0])
+                    world.wakeUnit(worker);
+                super.advanceTime(dt);
+            }
+        };
+        world.addUnit(waker);
+
+        // the idle time of a working unit is its work timer, which counts down while it sleeps.
+        for (int i = 0; i < 10; i++)
+            world.advanceTime(0.1);
+        assertEquals(8.9, worker.getIdleTime(), 1e-6);
+
+        // the worker isn't advanced in the step it is woken in, but its timer still counts the whole step.
+        wake[0] = true;
+        world.advanceTime(0.1);
+        assertEquals(0, world.getSleepTime(worker), 1e-6);
+        assertEquals(8.8, worker.getIdleTime(), 1e-6);
+        wake[0] = false;
+        world.advanceTime(0.1);
+        assertEquals(8.7, worker.getIdleTime(), 1e-6);
+    }
+
     @Test
     public void testSpawnUnit() throws Exception {
         Unit unit1 = world.spawnUnit(false);
@@ -248,6 +421,24 @@ public class WorldTest {
 
     }
 
+    @Test
+    public void testLiveViews() throws Exception {
+        Set<Unit> units = world.getUnits();
+        Set<Faction> factions = world.getFactions();
+        Unit unit = world.spawnUnit(false);
+        assertTrue(units.contains(unit));
+        assertTrue(factions.contains(unit.getFaction()));
+        assertSame(units, world.getUnits());
+        assertSame(unit.getFaction().getUnits(), unit.getFaction().getUnits());
+        unit.terminate();
+        assertTrue(units.isEmpty());
+        assertTrue(factions.isEmpty());
+        try {
+            units.add(unit);
+            fail();
+        } catch (UnsupportedOperationException expected) {}
+    }
+
     @Test
     public void testFactionAssignment() throws Exception {
         for (int i = 0; i < 50; i++) {
@@ -274,4 +465,239 @@ public class WorldTest {
                 {0, 0, +1}});
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testIsReachable() throws Exception {
+        World world = new World(new int[5][5][5], (x, y, z) -> {});
+        IntVector left = new IntVector(0, 2, 2), right = new IntVector(4, 2, 2);
+        assertTrue(world.isReachable(left, right));
+
+        for (int y = 0; y < 5; y++)
+            for (int z = 0; z < 5; z++)
+                world.getTerrain().setCubeType(new IntVector(2, y, z), Terrain.Type.ROCK);
+        assertFalse(world.isReachable(left, right));
+        assertFalse(world.isReachable(left, new IntVector(2, 2, 2)));
+
+        world.getTerrain().setCubeType(new IntVector(2, 2, 2), Terrain.Type.AIR);
+        assertTrue(world.isReachable(left, right));
+        assertEquals(world.getPathFinder().isReachable(left, right), world.isReachable(left, right));
+    }
+
+    @Test
+    public void testGetRandomReachable() throws Exception {
+        World world = new World(new int[10][10][3], (x, y, z) -> {});
+        for (int y = 0; y < 10; y++)
+            for (int z = 0; z < 3; z++)
+                world.getTerrain().setCubeType(new IntVector(1, y, z), Terrain.Type.ROCK);
+        // the unit's side of the wall is a tenth of the world, so some picks fall back to counting.
+        for (int i = 0; i < 50; i++)
+            assertTrue(world.isReachable(IntVector.ZERO, world.getRandomReachable(IntVector.ZERO).get()));
+        assertNull(world.getPath(IntVector.ZERO, new IntVector(5, 5, 0)));
+    }
+
+    @Test
+    public void testSpatialQueries() throws Exception {
+        World world = new World(new int[10][10][3], (x, y, z) -> {});
+        Unit unit = new Unit("Test", 1, 1, 0, 50, 50, 50, 50);
+        world.addUnit(unit);
+        Log log = new Log(world, new IntVector(8, 8, 0));
+        world.addGameObject(log);
+        assertEquals(1, world.getUnitsInBox(new IntVector(0, 0, 0), new IntVector(2, 2, 0)).size());
+        assertEquals(log, world.getNearestGameObject(unit.getPosition(), Log.class).get());
+        assertFalse(world.getNearestGameObject(unit.getPosition(), Boulder.class).isPresent());
+
+        // the index follows the positions of units.
+        unit.setPosition(new Vector(6.5, 6.5, 0.5));
+        assertTrue(world.getUnitsInBox(new IntVector(0, 0, 0), new IntVector(2, 2, 0)).isEmpty());
+        assertEquals(unit, world.getUnitsInRadius(new Vector(7.5, 7.5, 0.5), 1.5).get(0));
+        assertEquals(unit, world.getNearestUnit(log.getPosition(), u -> true).get());
+
+        unit.terminate();
+        assertFalse(world.getNearestUnit(log.getPosition(), u -> true).isPresent());
+        world.removeGameObject(log);
+        assertTrue(world.getGameObjectsInBox(new IntVector(0, 0, 0), new IntVector(9, 9, 2)).isEmpty());
+    }
+
+    @Test
+    public void testGetNearestReachable() throws Exception {
+        World world = new World(new int[10][10][3], (x, y, z) -> {});
+        // a wall between the unit and the near log, with an opening at y = 9.
+        for (int y = 0; y < 9; y++)
+            for (int z = 0; z < 3; z++)
+                world.getTerrain().setCubeType(new IntVector(2, y, z), Terrain.Type.ROCK);
+        Unit unit = new Unit("Test", 1, 0, 0, 50, 50, 50, 50);
+        Unit other = new Unit("Other", 1, 5, 0, 50, 50, 50, 50);
+        world.addUnit(unit);
+        world.addUnit(other);
+        world.addGameObject(new Log(world, new IntVector(3, 0, 0)));
+        world.addGameObject(new Log(world, new IntVector(0, 7, 0)));
+
+        IntVector start = unit.getPosition().toIntVector();
+        assertEquals(new IntVector(0, 7, 0),
+                world.getNearestReachable(start, index -> world.getTerrain().getNbLogs(index) > 0).get());
+        assertFalse(world.getNearestReachable(start, index -> false).isPresent());
+        assertEquals(other, world.getNearestReachableUnit(start, u -> u != unit).get());
+        assertFalse(world.getNearestReachableUnit(start, u -> u.getName().equals("None")).isPresent());
+    }
+
+    @Test
+    public void testGetObjectsInBox() throws Exception {
+        World world = new World(new int[10][10][3], (x, y, z) -> {});
+        Unit unit = new Unit("Test", 2, 3, 0, 50, 50, 50, 50);
+        world.addUnit(unit);
+        Boulder boulder = new Boulder(world, new IntVector(2, 4, 0));
+        world.addGameObject(boulder);
+        world.addGameObject(new Log(world, new IntVector(7, 7, 0)));
+
+        Set<Object> objects = world.getObjectsInBox(new Vector(2, 3, 0), new Vector(3, 5, 1));
+        assertEquals(2, objects.size());
+        assertTrue(objects.contains(unit) && objects.contains(boulder));
+        // the box excludes its maximum corner.
+        assertTrue(world.getObjectsInBox(new Vector(0, 0, 0), new Vector(2.5, 3.5, 0.5)).isEmpty());
+        assertEquals(3, world.getObjectsInBox(new Vector(0, 0, 0), new Vector(10, 10, 3)).size());
+    }
+
+    @Test
+    public void testGetNearestWorkshop() throws Exception {
+        World world = new World(new int[10][10][3], (x, y, z) -> {});
+        IntVector near = new IntVector(3, 0, 0), far = new IntVector(9, 9, 0);
+        world.getTerrain().setCubeType(near, Terrain.Type.WORKSHOP);
+        world.getTerrain().setCubeType(far, Terrain.Type.WORKSHOP);
+        assertEquals(near, world.getNearestWorkshop(IntVector.ZERO).get());
+
+        // wall off the near workshop, the flow field follows the terrain.
+        for (int y = 0; y < 10; y++)
+            for (int z = 0; z < 3; z++)
+                world.getTerrain().setCubeType(new IntVector(2, y, z), Terrain.Type.ROCK);
+        assertFalse(world.getNearestWorkshop(IntVector.ZERO).isPresent());
+        assertEquals(near, world.getNearestWorkshop(new IntVector(9, 0, 0)).get());
+        assertEquals(new IntVector(9, 0, 0), world.getPath(new IntVector(9, 0, 0), near).getFirst());
+        assertEquals(near, world.getPath(new IntVector(9, 0, 0), near).getLast());
+    }
+
+    @Test
+    public void testRequestFlowTarget() throws Exception {
+        World world = new World(new int[20][20][1], (x, y, z) -> {});
+        IntVector start = IntVector.ZERO, target = new IntVector(19, 19, 0);
+        world.addFlowTarget(target);
+        world.setPathBudget(5);
+        // without a flow field, the request is searched within the budget.
+        PathRequest request = world.requestPath(start, target);
+        assertFalse(request.isDone());
+        while (!request.isDone())
+            world.advanceTime(0.1);
+        assertEquals(target, request.getPath().getLast());
+
+        // once the field is built, requests follow it.
+        world.getFlowField(Collections.singleton(target));
+        request = world.requestPath(new IntVector(0, 19, 0), target);
+        assertTrue(request.isDone());
+        assertEquals(target, request.getPath().getLast());
+
+        // the fields of all flow targets are kept.
+        for (int i = 0; i < 12; i++) {
+            world.addFlowTarget(new IntVector(i, 10, 0));
+            world.getFlowField(Collections.singleton(new IntVector(i, 10, 0)));
+        }
+        assertTrue(world.requestPath(new IntVector(0, 18, 0), target).isDone());
+    }
+
+    @Test
+    public void testRequestPath() throws Exception {
+        World world = new World(new int[20][20][1], (x, y, z) -> {});
+        IntVector start = IntVector.ZERO, target = new IntVector(19, 19, 0);
+        assertNotNull(world.requestPath(start, target).getPath());
+
+        world.getPathCache().clear();
+        world.setPathBudget(5);
+        PathRequest request = world.requestPath(start, target);
+        int steps = 0;
+        while (!request.isDone()) {
+            world.advanceTime(0.1);
+            steps++;
+        }
+        assertTrue(steps > 1);
+        assertEquals(start, request.getPath().getFirst());
+        assertEquals(target, request.getPath().getLast());
+        // the found path is cached.
+        assertTrue(world.requestPath(start, target).isDone());
+
+        world.getPathCache().clear();
+        world.setPathRequestLimit(3);
+        PathRequest abandoned = world.requestPath(start, target);
+        world.advanceTime(0.1);
+        assertTrue(abandoned.isDone());
+        assertNull(abandoned.getPath());
+    }
+
+    @Test
+    public void testRequestPathParallel() throws Exception {
+        World sequential = new World(new int[20][20][1], (x, y, z) -> {});
+        World parallel = new World(new int[20][20][1], (x, y, z) -> {});
+        sequential.setPathBudget(7);
+        parallel.setPathBudget(7);
+        parallel.setPathThreads(4);
+
+        List<PathRequest> expected = new ArrayList<>(), actual = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            IntVector start = new IntVector(i, 0, 0), target = new IntVector(19 - i, 19, 0);
+            expected.add(sequential.requestPath(start, target));
+            actual.add(parallel.requestPath(start, target));
+        }
+        while (!expected.stream().allMatch(PathRequest::isDone))
+            sequential.advanceTime(0.1);
+        while (!actual.stream().allMatch(PathRequest::isDone))
+            parallel.advanceTime(0.1);
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(new ArrayList<>(expected.get(i).getPath()), new ArrayList<>(actual.get(i).getPath()));
+    }
+
+    @Test
+    public void testSetPathThreads() throws Exception {
+        World world = new World(new int[20][20][1], (x, y, z) -> {});
+        world.setPathBudget(7);
+        world.setPathThreads(4);
+        PathRequest first = world.requestPath(new IntVector(0, 0, 0), new IntVector(19, 19, 0));
+        world.advanceTime(0.1);
+        // the pool of four threads is shut down, its replacement must still calculate the requests.
+        world.setPathThreads(2);
+        PathRequest second = world.requestPath(new IntVector(19, 0, 0), new IntVector(0, 19, 0));
+        while (!first.isDone() || !second.isDone())
+            world.advanceTime(0.1);
+        assertEquals(20, first.getPath().size());
+        assertEquals(20, second.getPath().size());
+        world.setPathThreads(1);
+        assertEquals(1, world.getPathThreads());
+    }
+
+    @Test
+    public void testIsStablePosition() throws Exception {
+        World world = new World(new int[5][5][5], (x, y, z) -> {});
+        Terrain terrain = world.getTerrain();
+        IntVector center = new IntVector(2, 2, 2);
+        assertFalse(terrain.isStablePosition(center));
+        assertTrue(terrain.isStablePosition(new IntVector(0, 2, 2)));
+
+        terrain.setCubeType(new IntVector(1, 1, 1), Terrain.Type.ROCK);
+        assertTrue(terrain.isStablePosition(center));
+        assertTrue(terrain.isWalkable(center));
+        assertFalse(terrain.isWalkable(new IntVector(1, 1, 1)));
+
+        terrain.setCubeType(new IntVector(1, 1, 1), Terrain.Type.AIR);
+        assertFalse(terrain.isStablePosition(center));
+        assertFalse(terrain.isWalkable(center));
+    }
+
+    @Test
+    public void testForEachNeighbour() throws Exception {
+        World world = new World(new int[3][3][3], (x, y, z) -> {});
+        Terrain terrain = world.getTerrain();
+
+        List<IntVector> neighbours = new ArrayList<>();
+        terrain.forEachNeighbour(terrain.getIndex(new IntVector(1, 1, 1)), i -> neighbours.add(terrain.getPosition(i)));
+        assertEquals(Terrain.getNeighbours(new IntVector(1, 1, 1)).collect(Collectors.toList()), neighbours);
+
+        int[] corner = new int[26];
+        assertEquals(7, terrain.getNeighbours(terrain.getIndex(IntVector.ZERO), corner));
+    }
+
+}
@@ -0,0 +1,65 @@
+package hillbillies.tests.model.util;
+
+import hillbillies.model.util.BidirectionalPathFinder;
+import hillbillies.model.util.GridPathFinder;
+import hillbillies.model.util.IntList;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the bidirectional pathfinder.
+ */
+public class BidirectionalPathFinderTest {
+
+    private static final int SIZE = 12;
+
+    private boolean[] walkable;
+    private GridPathFinder.Neighbours neighbours;
+    private BidirectionalPathFinder pathFinder;
+    private GridPathFinder gridPathFinder;
+
+    @Before
+    public void setUp() throws Exception {
+        walkable = new boolean[SIZE * SIZE * SIZE];
+        for (int i = 0; i < walkable.length; i++)
+            walkable[i] = true;
+        neighbours = WorldMaps.gridNeighbours(walkable, SIZE);
+        pathFinder = new BidirectionalPathFinder(SIZE, SIZE, SIZE, neighbours);
+        gridPathFinder = new GridPathFinder(SIZE, SIZE, SIZE, neighbours);
+    }
+
+    @Test
+    public void testGetPathSame() throws Exception {
+        IntList path = pathFinder.getPath(index(3, 4, 5), index(3, 4, 5));
+        assertEquals(1, path.size());
+        assertEquals(index(3, 4, 5), path.get(0));
+    }
+
+    @Test
+    public void testGetPathUnreachable() throws Exception {
+        for (int y = 0; y < SIZE; y++)
+            for (int z = 0; z < SIZE; z++)
+                walkable[index(6, y, z)] = false;
+        assertNull(pathFinder.getPath(index(0, 0, 0), index(11, 0, 0)));
+        walkable[index(11, 0, 0)] = false;
+        assertNull(pathFinder.getPath(index(7, 0, 0), index(11, 0, 0)));
+        walkable[index(6, 9, 2)] = true;
+        WorldMaps.assertValidPath(pathFinder.getPath(index(0, 0, 0), index(7, 0, 0)), index(0, 0, 0),
+                index(7, 0, 0), neighbours);
+    }
+
+    @Test
+    public void testRandomMaps() throws Exception {
+        WorldMaps.assertRandomMaps(new Random(3), walkable, SIZE, 40, 10, i -> {}, gridPathFinder,
+                pathFinder::getPath, true);
+    }
+
+    private static int index(int x, int y, int z) {
+        return x + y * SIZE + z * SIZE * SIZE;
+    }
+}
@@ -0,0 +1,137 @@
+package hillbillies.tests.model.util;
+
+import hillbillies.model.util.BorderConnectivity;
+import hillbillies.model.util.IntList;
+import hillbillies.util.ConnectedToBorder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Golden tests comparing BorderConnectivity with the provided ConnectedToBorder.
+ */
+public class BorderConnectivityTest {
+
+    private static final int SIZE = 10;
+
+    private Random random;
+    private ConnectedToBorder expected;
+    private BorderConnectivity actual;
+    private boolean[][][] solid;
+
+    @Before
+    public void setUp() throws Exception {
+        random = new Random(1234);
+        expected = new ConnectedToBorder(SIZE, SIZE, SIZE);
+        actual = new BorderConnectivity(SIZE, SIZE, SIZE);
+        solid = new boolean[SIZE][SIZE][SIZE];
+        for (boolean[][] plane : solid)
+            for (boolean[] row : plane)
+                Arrays.fill(row, true);
+    }
+
+    @Test
+    public void testSimpleCaveIn() throws Exception {
+        // dig around the cube at (2, 2, 2) in the x-y plane and above and below it.
+        int[][] around = {{1, 2, 2}, {3, 2, 2}, {2, 1, 2}, {2, 3, 2}, {2, 2, 1}};
+        for (int[] c : around)
+            assertTrue(actual.changeSolidToPassable(c[0], c[1], c[2]).isEmpty());
+        assertTrue(actual.isSolidConnectedToBorder(2, 2, 2));
+
+        List<int[]> changed = actual.changeSolidToPassable(2, 2, 3);
+        assertEquals(1, changed.size());
+        assertArrayEquals(new int[] {2, 2, 2}, changed.get(0));
+        assertFalse(actual.isSolidConnectedToBorder(2, 2, 2));
+
+        List<int[]> connected = actual.changePassableToSolid(2, 2, 3);
+        assertEquals(2, connected.size());
+        assertTrue(actual.isSolidConnectedToBorder(2, 2, 2));
+    }
+
+    @Test
+    public void testRandomDigging() throws Exception {
+        for (int i = 0; i < 600; i++)
+            assertSameChange(true);
+        assertSameState();
+    }
+
+    @Test
+    public void testRandomDiggingAndFilling() throws Exception {
+        for (int i = 0; i < 1500; i++) {
+            assertSameChange(random.nextInt(4) != 0);
+            if (i % 100 == 0)
+                assertSameState();
+        }
+        assertSameState();
+    }
+
+    @Test
+    public void testInitialize() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            setUp();
+            Set<List<Integer>> caveIn = new HashSet<>();
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < SIZE; y++) {
+                    for (int z = 0; z < SIZE; z++) {
+                        solid[x][y][z] = random.nextInt(10) < 4 + i * 2;
+                        if (!solid[x][y][z])
+                            caveIn.addAll(toSet(expected.changeSolidToPassable(x, y, z)));
+                    }
+                }
+            }
+            caveIn.removeIf(c -> !solid[c.get(0)][c.get(1)][c.get(2)]);
+
+            IntList disconnected = actual.initialize(index ->
+                    !solid[index % SIZE][(index / SIZE) % SIZE][index / (SIZE * SIZE)]);
+            Set<List<Integer>> actualCaveIn = new HashSet<>();
+            for (int j = 0; j < disconnected.size(); j++) {
+                int index = disconnected.get(j);
+                actualCaveIn.add(Arrays.asList(index % SIZE, (index / SIZE) % SIZE, index / (SIZE * SIZE)));
+            }
+            assertEquals(caveIn, actualCaveIn);
+            assertSameState();
+        }
+    }
+
+    /**
+     * Applies the same random change to both trackers and checks that the returned cubes are equal.
+     * The provided class reports disconnected cubes again, the new class only reports newly disconnected cubes.
+     */
+    private void assertSameChange(boolean dig) {
+        int x = random.nextInt(SIZE), y = random.nextInt(SIZE), z = random.nextInt(SIZE);
+        if (dig) {
+            Set<List<Integer>> expectedChange = toSet(expected.changeSolidToPassable(x, y, z));
+            expectedChange.removeIf(c -> wasDisconnected(c.get(0), c.get(1), c.get(2)));
+            assertEquals(expectedChange, toSet(actual.changeSolidToPassable(x, y, z)));
+        } else {
+            assertEquals(toSet(expected.changePassableToSolid(x, y, z)), toSet(actual.changePassableToSolid(x, y, z)));
+        }
+        solid[x][y][z] = !dig;
+    }
+
+    /**
+     * Returns whether the given cube was a solid cube without a path to the border before the current change.
+     */
+    private boolean wasDisconnected(int x, int y, int z) {
+        return solid[x][y][z] && !actual.isSolidConnectedToBorder(x, y, z);
+    }
+
+    private void assertSameState() {
+        for (int x = 0; x < SIZE; x++)
+            for (int y = 0; y < SIZE; y++)
+                for (int z = 0; z < SIZE; z++)
+                    assertEquals(expected.isSolidConnectedToBorder(x, y, z), actual.isSolidConnectedToBorder(x, y, z));
+    }
+
+    private static Set<List<Integer>> toSet(List<int[]> coordinates) {
+        return coordinates.stream().map(c -> Arrays.asList(c[0], c[1], c[2])).collect(Collectors.toSet());
+    }
+}
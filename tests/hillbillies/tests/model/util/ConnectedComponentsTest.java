@@ -0,0 +1,128 @@
+package hillbillies.tests.model.util;
+
+import hillbillies.model.util.ConnectedComponents;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the connected-component labelling.
+ */
+public class ConnectedComponentsTest {
+
+    private static final int SIZE = 6;
+
+    private boolean[][][] walkable;
+    private ConnectedComponents components;
+
+    @Before
+    public void setUp() throws Exception {
+        walkable = new boolean[SIZE][SIZE][SIZE];
+        for (int x = 0; x < SIZE; x++)
+            for (int y = 0; y < SIZE; y++)
+                walkable[x][y][0] = true;
+        components = new ConnectedComponents(SIZE, SIZE, SIZE, (x, y, z) -> walkable[x][y][z]);
+    }
+
+    @Test
+    public void testInitialLabels() throws Exception {
+        int label = components.getLabel(0, 0, 0);
+        assertNotEquals(ConnectedComponents.NO_LABEL, label);
+        assertEquals(label, components.getLabel(SIZE - 1, SIZE - 1, 0));
+        assertEquals(ConnectedComponents.NO_LABEL, components.getLabel(0, 0, 1));
+        assertEquals(SIZE * SIZE, components.getSize(label));
+    }
+
+    @Test
+    public void testSplitAndMerge() throws Exception {
+        // cut the floor in two halves.
+        for (int y = 0; y < SIZE; y++) {
+            walkable[2][y][0] = false;
+            components.update(2, y, 0);
+        }
+        assertNotEquals(components.getLabel(0, 0, 0), components.getLabel(SIZE - 1, 0, 0));
+        assertEquals(2 * SIZE, components.getSize(components.getLabel(0, 0, 0)));
+        assertFalse(components.isConnected(0, 0, 0, SIZE - 1, 0, 0));
+
+        // reconnect them.
+        walkable[2][3][0] = true;
+        components.update(2, 3, 0);
+        assertEquals(components.getLabel(0, 0, 0), components.getLabel(SIZE - 1, 0, 0));
+        assertTrue(components.isConnected(0, 0, 0, SIZE - 1, 0, 0));
+    }
+
+    @Test
+    public void testGetCube() throws Exception {
+        for (int y = 0; y < SIZE; y++) {
+            walkable[2][y][0] = false;
+            components.update(2, y, 0);
+        }
+        int left = components.getLabel(0, 0, 0);
+        assertEquals(left, components.getStartLabel(0, 0, 1));
+        assertEquals(ConnectedComponents.NO_LABEL, components.getStartLabel(0, 0, 3));
+        for (int rank = 0; rank < components.getSize(left); rank++) {
+            int cube = components.getCube(left, rank);
+            assertEquals(left, components.getLabel(cube % SIZE, (cube / SIZE) % SIZE, cube / (SIZE * SIZE)));
+        }
+        assertEquals(-1, components.getCube(left, components.getSize(left)));
+    }
+
+    @Test
+    public void testIsConnectedFromUnwalkableStart() throws Exception {
+        assertTrue(components.isConnected(0, 0, 1, SIZE - 1, SIZE - 1, 0));
+        assertTrue(components.isConnected(0, 0, 3, 0, 0, 3));
+        assertFalse(components.isConnected(0, 0, 3, 0, 0, 0));
+        assertFalse(components.isConnected(0, 0, 0, 0, 0, 1));
+    }
+
+    @Test
+    public void testRandomUpdates() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            int x = random.nextInt(SIZE), y = random.nextInt(SIZE), z = random.nextInt(SIZE);
+            walkable[x][y][z] = random.nextBoolean();
+            components.update(x, y, z);
+            if (i % 25 == 0)
+                assertSamePartition();
+        }
+        assertSamePartition();
+    }
+
+    /**
+     * Checks that the incremental labels describe the same partition as freshly computed labels.
+     */
+    private void assertSamePartition() {
+        ConnectedComponents fresh = new ConnectedComponents(SIZE, SIZE, SIZE, (x, y, z) -> walkable[x][y][z]);
+        Map<Integer, Integer> mapping = new HashMap<>();
+        Map<Integer, Integer> reverse = new HashMap<>();
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    int a = components.getLabel(x, y, z);
+                    int b = fresh.getLabel(x, y, z);
+                    assertEquals(a == ConnectedComponents.NO_LABEL, b == ConnectedComponents.NO_LABEL);
+                    if (a == ConnectedComponents.NO_LABEL)
+                        continue;
+                    assertEquals(b, (int) mapping.computeIfAbsent(a, k -> b));
+                    assertEquals(a, (int) reverse.computeIfAbsent(b, k -> a));
+                    assertEquals(fresh.getSize(b), components.getSize(a));
+                }
+            }
+        }
+        for (int label : mapping.keySet()) {
+            Set<Integer> cubes = new HashSet<>();
+            for (int rank = 0; rank < components.getSize(label); rank++) {
+                int cube = components.getCube(label, rank);
+                assertEquals(label, components.getLabel(cube % SIZE, (cube / SIZE) % SIZE, cube / (SIZE * SIZE)));
+                assertTrue(cubes.add(cube));
+            }
+        }
+    }
+}
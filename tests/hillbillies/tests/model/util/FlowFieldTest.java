@@ -0,0 +1,108 @@
+package hillbillies.tests.model.util;
+
+import hillbillies.model.util.FlowField;
+import hillbillies.model.util.IntList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the flow fields.
+ */
+public class FlowFieldTest {
+
+    private static final int SIZE = 8;
+
+    private boolean[] walkable;
+    private FlowField field;
+
+    @Before
+    public void setUp() throws Exception {
+        walkable = new boolean[SIZE * SIZE * SIZE];
+        for (int i = 0; i < walkable.length; i++)
+            walkable[i] = true;
+        field = createField();
+    }
+
+    @Test
+    public void testDistance() throws Exception {
+        assertEquals(0f, field.getDistance(index(0, 0, 0)), 1e-6);
+        assertEquals(3f, field.getDistance(index(3, 0, 0)), 1e-6);
+        assertEquals(3 * Math.sqrt(3), field.getDistance(index(3, 3, 3)), 1e-5);
+    }
+
+    @Test
+    public void testGetPath() throws Exception {
+        IntList path = field.getPath(index(5, 2, 7));
+        assertNotNull(path);
+        assertEquals(index(5, 2, 7), path.get(0));
+        assertEquals(index(0, 0, 0), path.get(path.size() - 1));
+        assertEquals(8, path.size());
+    }
+
+    @Test
+    public void testUnreachable() throws Exception {
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                walkable[index(3, y, z)] = false;
+                field.update(index(3, y, z));
+            }
+        }
+        assertEquals(FlowField.UNREACHABLE, field.getDistance(index(5, 0, 0)), 0);
+        assertNull(field.getPath(index(5, 0, 0)));
+
+        walkable[index(3, 4, 4)] = true;
+        field.update(index(3, 4, 4));
+        assertNotNull(field.getPath(index(5, 0, 0)));
+    }
+
+    @Test
+    public void testRandomUpdates() throws Exception {
+        Random random = new Random(11);
+        for (int i = 0; i < 400; i++) {
+            int cube = random.nextInt(walkable.length);
+            walkable[cube] = random.nextInt(3) != 0;
+            field.update(cube);
+            if (i % 20 == 0)
+                assertSameDistances();
+        }
+        assertSameDistances();
+    }
+
+    /**
+     * Checks that the updated distances equal freshly computed distances.
+     */
+    private void assertSameDistances() {
+        FlowField fresh = createField();
+        for (int i = 0; i < walkable.length; i++)
+            assertEquals(fresh.getDistance(i), field.getDistance(i), 1e-4);
+    }
+
+    private FlowField createField() {
+        return new FlowField(SIZE, SIZE, SIZE, new int[] {index(0, 0, 0), index(0, SIZE - 1, 0)},
+                i -> walkable[i], this::getNeighbours);
+    }
+
+    private int getNeighbours(int index, int[] result) {
+        int x = index % SIZE, y = (index / SIZE) % SIZE, z = index / (SIZE * SIZE);
+        int n = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    int nx = x + dx, ny = y + dy, nz = z + dz;
+                    if ((dx != 0 || dy != 0 || dz != 0) && nx >= 0 && nx < SIZE && ny >= 0 && ny < SIZE
+                            && nz >= 0 && nz < SIZE && walkable[index(nx, ny, nz)])
+                        result[n++] = index(nx, ny, nz);
+                }
+            }
+        }
+        return n;
+    }
+
+    private static int index(int x, int y, int z) {
+        return x + y * SIZE + z * SIZE * SIZE;
+    }
+}
@@ -0,0 +1,167 @@
+package hillbillies.tests.model.util;
+
+import hillbillies.model.util.FlowField;
+import hillbillies.model.util.GridPathFinder;
+import hillbillies.model.util.Heuristic;
+import hillbillies.model.util.IntList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the grid specialized pathfinder.
+ */
+public class GridPathFinderTest {
+
+    private static final int SIZE = 8;
+
+    private boolean[] walkable;
+    private GridPathFinder pathFinder;
+
+    @Before
+    public void setUp() throws Exception {
+        walkable = new boolean[SIZE * SIZE * SIZE];
+        for (int i = 0; i < walkable.length; i++)
+            walkable[i] = true;
+        pathFinder = new GridPathFinder(SIZE, SIZE, SIZE, this::getNeighbours);
+    }
+
+    @Test
+    public void testGetPath() throws Exception {
+        int start = index(0, 0, 0), target = index(5, 3, 2);
+        IntList path = pathFinder.getPath(start, target);
+        assertNotNull(path);
+        assertEquals(start, path.get(0));
+        assertEquals(target, path.get(path.size() - 1));
+        assertValidPath(path);
+        // 2 diagonal steps in 3D, 1 in 2D and 2 straight steps.
+        assertEquals(6, path.size());
+    }
+
+    @Test
+    public void testGetPathSameCube() throws Exception {
+        IntList path = pathFinder.getPath(index(1, 1, 1), index(1, 1, 1));
+        assertEquals(1, path.size());
+        assertEquals(index(1, 1, 1), path.get(0));
+    }
+
+    @Test
+    public void testGetPathAroundWall() throws Exception {
+        for (int y = 0; y < SIZE - 1; y++)
+            for (int z = 0; z < SIZE; z++)
+                walkable[index(3, y, z)] = false;
+        IntList path = pathFinder.getPath(index(0, 0, 0), index(6, 0, 0));
+        assertNotNull(path);
+        assertValidPath(path);
+        for (int i = 0; i < path.size(); i++)
+            assertTrue(walkable[path.get(i)]);
+    }
+
+    @Test
+    public void testGetPathUnreachable() throws Exception {
+        for (int y = 0; y < SIZE; y++)
+            for (int z = 0; z < SIZE; z++)
+                walkable[index(3, y, z)] = false;
+        assertNull(pathFinder.getPath(index(0, 0, 0), index(6, 0, 0)));
+        // the arrays are reused, a following search must still work.
+        assertNotNull(pathFinder.getPath(index(0, 0, 0), index(2, 7, 7)));
+    }
+
+    @Test
+    public void testRandomMaps() throws Exception {
+        Random random = new Random(7);
+        for (int map = 0; map < 20; map++) {
+            for (int i = 0; i < walkable.length; i++)
+                walkable[i] = random.nextInt(4) != 0;
+            for (int search = 0; search < 10; search++) {
+                int start = random.nextInt(walkable.length), target = random.nextInt(walkable.length);
+                walkable[start] = walkable[target] = true;
+                IntList path = pathFinder.getPath(start, target);
+                if (path != null) {
+                    assertEquals(start, path.get(0));
+                    assertEquals(target, path.get(path.size() - 1));
+                    assertValidPath(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGetPathToNearest() throws Exception {
+        // the straight line to far is shorter, but the wall makes the path to near cheaper.
+        for (int y = 0; y < SIZE - 1; y++)
+            for (int z = 0; z < SIZE; z++)
+                walkable[index(1, y, z)] = false;
+        int near = index(0, 7, 0), far = index(3, 0, 0);
+        IntList path = pathFinder.getPathToNearest(index(0, 0, 0), i -> i == near || i == far);
+        assertEquals(index(0, 0, 0), path.get(0));
+        assertEquals(near, path.get(path.size() - 1));
+        assertValidPath(path);
+
+        assertEquals(1, pathFinder.getPathToNearest(index(0, 0, 0), i -> true).size());
+        assertNull(pathFinder.getPathToNearest(index(0, 0, 0), i -> false));
+    }
+
+    @Test
+    public void testOctileIsOptimal() throws Exception {
+        assertEquals(Heuristic.OCTILE, pathFinder.getHeuristic());
+        assertEquals(Math.sqrt(3) + Math.sqrt(2) + 1, Heuristic.OCTILE.estimate(3, -2, 1), 1e-9);
+        assertEquals(6, Heuristic.MANHATTAN.estimate(3, -2, 1), 1e-9);
+
+        Random random = new Random(11);
+        for (int map = 0; map < 10; map++) {
+            for (int i = 0; i < walkable.length; i++)
+                walkable[i] = random.nextInt(3) != 0;
+            int start = random.nextInt(walkable.length), target = random.nextInt(walkable.length);
+            walkable[start] = walkable[target] = true;
+            IntList path = pathFinder.getPath(start, target);
+            // the distances of a flow field are the costs of the cheapest paths.
+            FlowField field = new FlowField(SIZE, SIZE, SIZE, new int[] {target}, i -> walkable[i], this::getNeighbours);
+            if (path == null) {
+                assertEquals(FlowField.UNREACHABLE, field.getDistance(start), 0);
+                continue;
+            }
+            float cost = 0;
+            for (int i = 1; i < path.size(); i++) {
+                int a = path.get(i - 1), b = path.get(i);
+                cost += Math.sqrt(Math.abs(a % SIZE - b % SIZE) + Math.abs((a / SIZE) % SIZE - (b / SIZE) % SIZE)
+                        + Math.abs(a / (SIZE * SIZE) - b / (SIZE * SIZE)));
+            }
+            assertEquals(field.getDistance(start), cost, 1e-3);
+        }
+    }
+
+    private void assertValidPath(IntList path) {
+        int[] neighbours = new int[26];
+        for (int i = 1; i < path.size(); i++) {
+            int n = getNeighbours(path.get(i - 1), neighbours);
+            boolean found = false;
+            for (int j = 0; j < n; j++)
+                found |= neighbours[j] == path.get(i);
+            assertTrue(found);
+        }
+    }
+
+    private int getNeighbours(int index, int[] result) {
+        int x = index % SIZE, y = (index / SIZE) % SIZE, z = index / (SIZE * SIZE);
+        int n = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    int nx = x + dx, ny = y + dy, nz = z + dz;
+                    if ((dx != 0 || dy != 0 || dz != 0) && nx >= 0 && nx < SIZE && ny >= 0 && ny < SIZE
+                            && nz >= 0 && nz < SIZE && walkable[index(nx, ny, nz)])
+                        result[n++] = index(nx, ny, nz);
+                }
+            }
+        }
+        return n;
+    }
+
+    private static int index(int x, int y, int z) {
+        return x + y * SIZE + z * SIZE * SIZE;
+    }
+}
@@ -0,0 +1,72 @@
+package hillbillies.tests.model.util;
+
+import hillbillies.model.util.GridPathFinder;
+import hillbillies.model.util.HierarchicalPathFinder;
+import hillbillies.model.util.IntList;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the hierarchical pathfinder.
+ */
+public class HierarchicalPathFinderTest {
+
+    private static final int SIZE = 20;
+
+    private boolean[] walkable;
+    private GridPathFinder.Neighbours neighbours;
+    private GridPathFinder gridPathFinder;
+    private HierarchicalPathFinder pathFinder;
+
+    @Before
+    public void setUp() throws Exception {
+        walkable = new boolean[SIZE * SIZE * SIZE];
+        for (int i = 0; i < walkable.length; i++)
+            walkable[i] = true;
+        neighbours = WorldMaps.gridNeighbours(walkable, SIZE);
+        gridPathFinder = new GridPathFinder(SIZE, SIZE, SIZE, neighbours);
+        pathFinder = new HierarchicalPathFinder(SIZE, SIZE, SIZE, i -> walkable[i], neighbours, gridPathFinder);
+    }
+
+    @Test
+    public void testGetPath() throws Exception {
+        int start = index(0, 0, 0), target = index(SIZE - 1, SIZE - 1, SIZE - 1);
+        IntList path = pathFinder.getPath(start, target);
+        WorldMaps.assertValidPath(path, start, target, neighbours);
+        assertEquals(SIZE, path.size());
+    }
+
+    @Test
+    public void testGetPathAfterChange() throws Exception {
+        int start = index(0, 0, 0), target = index(SIZE - 1, 0, 0);
+        // wall off the target.
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                walkable[index(SIZE / 2, y, z)] = false;
+                pathFinder.invalidate(index(SIZE / 2, y, z));
+            }
+        }
+        assertNull(pathFinder.getPath(start, target));
+
+        // open a hole in the wall.
+        walkable[index(SIZE / 2, SIZE - 1, SIZE - 1)] = true;
+        pathFinder.invalidate(index(SIZE / 2, SIZE - 1, SIZE - 1));
+        WorldMaps.assertValidPath(pathFinder.getPath(start, target), start, target, neighbours);
+    }
+
+    @Test
+    public void testRandomMaps() throws Exception {
+        // hierarchical paths are valid but not always shortest.
+        WorldMaps.assertRandomMaps(new Random(3), walkable, SIZE, 10, 20, pathFinder::invalidate, gridPathFinder,
+                pathFinder::getPath, false);
+    }
+
+    private static int index(int x, int y, int z) {
+        return x + y * SIZE + z * SIZE * SIZE;
+    }
+}
@@ -0,0 +1,66 @@
+package hillbillies.tests.model.util;
+
+import hillbillies.model.util.GridPathFinder;
+import hillbillies.model.util.IntList;
+import hillbillies.model.util.JumpPointPathFinder;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the jump point pathfinder.
+ */
+public class JumpPointPathFinderTest {
+
+    private static final int SIZE = 10;
+
+    private boolean[] walkable;
+    private GridPathFinder.Neighbours neighbours;
+    private JumpPointPathFinder pathFinder;
+    private GridPathFinder gridPathFinder;
+
+    @Before
+    public void setUp() throws Exception {
+        walkable = new boolean[SIZE * SIZE * SIZE];
+        for (int i = 0; i < walkable.length; i++)
+            walkable[i] = true;
+        neighbours = WorldMaps.gridNeighbours(walkable, SIZE);
+        pathFinder = new JumpPointPathFinder(SIZE, SIZE, SIZE, i -> walkable[i]);
+        gridPathFinder = new GridPathFinder(SIZE, SIZE, SIZE, neighbours);
+    }
+
+    @Test
+    public void testOpenGrid() throws Exception {
+        int start = index(0, 0, 0), target = index(9, 5, 2);
+        IntList path = pathFinder.getPath(start, target);
+        WorldMaps.assertValidPath(path, start, target, neighbours);
+        assertEquals(WorldMaps.cost(gridPathFinder.getPath(start, target), SIZE), WorldMaps.cost(path, SIZE), 1e-3);
+        // only the cube where the path turns is expanded besides the start.
+        assertTrue(pathFinder.getExpandedNodes() <= 3);
+    }
+
+    @Test
+    public void testGetPathUnreachable() throws Exception {
+        for (int y = 0; y < SIZE; y++)
+            for (int z = 0; z < SIZE; z++)
+                walkable[index(4, y, z)] = false;
+        assertNull(pathFinder.getPath(index(0, 0, 0), index(8, 0, 0)));
+        walkable[index(4, 7, 3)] = true;
+        WorldMaps.assertValidPath(pathFinder.getPath(index(0, 0, 0), index(8, 0, 0)), index(0, 0, 0),
+                index(8, 0, 0), neighbours);
+    }
+
+    @Test
+    public void testRandomMaps() throws Exception {
+        WorldMaps.assertRandomMaps(new Random(5), walkable, SIZE, 40, 10, i -> {}, gridPathFinder,
+                pathFinder::getPath, true);
+    }
+
+    private static int index(int x, int y, int z) {
+        return x + y * SIZE + z * SIZE * SIZE;
+    }
+}
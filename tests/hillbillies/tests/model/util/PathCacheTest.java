@@ -0,0 +1,84 @@
+package hillbillies.tests.model.util;
+
+import hillbillies.model.util.IntList;
+import hillbillies.model.util.PathCache;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the path cache.
+ */
+public class PathCacheTest {
+
+    private static final int SIZE = 10;
+
+    private boolean[] walkable;
+    private PathCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        walkable = new boolean[SIZE * SIZE * SIZE];
+        for (int i = 0; i < walkable.length; i++)
+            walkable[i] = true;
+        cache = new PathCache(SIZE, SIZE, 2, i -> walkable[i]);
+    }
+
+    @Test
+    public void testExactHit() throws Exception {
+        IntList path = straightPath(0, 5);
+        cache.put(path, 0);
+        assertSame(path, cache.get(index(0, 0, 0), index(5, 0, 0), 0));
+        assertNull(cache.get(index(0, 0, 0), index(6, 0, 0), 0));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testSuffix() throws Exception {
+        cache.put(straightPath(0, 5), 0);
+        IntList onPath = cache.get(index(2, 0, 0), index(5, 0, 0), 0);
+        assertArrayEquals(straightPath(2, 5).toArray(), onPath.toArray());
+
+        // a start next to the path joins it at the cube closest to the target.
+        IntList nextTo = cache.get(index(2, 1, 0), index(5, 0, 0), 0);
+        assertArrayEquals(new int[] {index(2, 1, 0), index(3, 0, 0), index(4, 0, 0), index(5, 0, 0)},
+                nextTo.toArray());
+        assertNull(cache.get(index(2, 2, 0), index(5, 0, 0), 0));
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+        cache.put(straightPath(0, 5), 0);
+        // a new version without changes on the path keeps the path.
+        assertNotNull(cache.get(index(0, 0, 0), index(5, 0, 0), 1));
+        walkable[index(3, 0, 0)] = false;
+        assertNull(cache.get(index(0, 0, 0), index(5, 0, 0), 2));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        cache.put(straightPath(0, 5), 0);
+        cache.put(straightPath(0, 6), 0);
+        cache.get(index(0, 0, 0), index(5, 0, 0), 0);
+        cache.put(straightPath(0, 7), 0);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNotNull(cache.get(index(0, 0, 0), index(5, 0, 0), 0));
+        assertNull(cache.get(index(0, 0, 0), index(6, 0, 0), 0));
+    }
+
+    private static IntList straightPath(int fromX, int toX) {
+        IntList path = new IntList();
+        for (int x = fromX; x <= toX; x++)
+            path.add(index(x, 0, 0));
+        return path;
+    }
+
+    private static int index(int x, int y, int z) {
+        return x + y * SIZE + z * SIZE * SIZE;
+    }
+}
@@ -33,7 +33,7 @@ public class PathFinderTest {
             }
 
             @Override
-            public int getHeuristic(IntVector a, IntVector b) {
+            public double getHeuristic(IntVector a, IntVector b) {
                 IntVector diff = a.subtract(b);
                 return Math.abs(diff.getX()) + Math.abs(diff.getY()) + Math.abs(diff.getZ());
             }
@@ -56,4 +56,4 @@ public class PathFinderTest {
     public void testIsReachable() throws Exception {
         assertTrue(pathFinder.isReachable(new IntVector(0, 0, 0), new IntVector(2, 1, 1)));
     }
-}
\ No newline at end of file
+}
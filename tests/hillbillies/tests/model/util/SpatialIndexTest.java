@@ -0,0 +1,84 @@
+package hillbillies.tests.model.util;
+
+import hillbillies.model.util.SpatialIndex;
+import hillbillies.model.vector.IntVector;
+import hillbillies.model.vector.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the spatial index.
+ */
+public class SpatialIndexTest {
+
+    private static final int SIZE = 20;
+
+    private SpatialIndex<String> index;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new SpatialIndex<>(SIZE, SIZE, SIZE, 4);
+    }
+
+    @Test
+    public void testAddUpdateRemove() throws Exception {
+        index.add("a", new Vector(1.5, 1.5, 1.5));
+        index.update("b", new Vector(2.5, 2.5, 2.5));
+        assertTrue(index.contains("a"));
+        assertFalse(index.contains("b"));
+        assertEquals(1, index.size());
+
+        index.update("a", new Vector(10.5, 1.5, 1.5));
+        assertTrue(index.getInBox(new IntVector(0, 0, 0), new IntVector(3, 3, 3)).isEmpty());
+        assertEquals(1, index.getInBox(new IntVector(10, 1, 1), new IntVector(10, 1, 1)).size());
+
+        index.remove("a");
+        assertFalse(index.contains("a"));
+        assertTrue(index.getInBox(new IntVector(0, 0, 0), new IntVector(SIZE, SIZE, SIZE)).isEmpty());
+    }
+
+    @Test
+    public void testRandomQueries() throws Exception {
+        Random random = new Random(7);
+        List<String> names = new ArrayList<>();
+        List<Vector> positions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Vector pos = new Vector(random.nextDouble() * SIZE, random.nextDouble() * SIZE, random.nextDouble() * SIZE);
+            names.add("o" + i);
+            positions.add(pos);
+            index.add("o" + i, pos);
+        }
+        for (int query = 0; query < 100; query++) {
+            IntVector min = new IntVector(random.nextInt(SIZE), random.nextInt(SIZE), random.nextInt(SIZE));
+            IntVector max = min.add(random.nextInt(6), random.nextInt(6), random.nextInt(6));
+            Vector center = new Vector(random.nextDouble() * SIZE, random.nextDouble() * SIZE, random.nextDouble() * SIZE);
+            double radius = random.nextDouble() * 6;
+
+            HashSet<String> inBox = new HashSet<>(), inRadius = new HashSet<>();
+            String nearest = null;
+            for (int i = 0; i < names.size(); i++) {
+                IntVector cube = positions.get(i).toIntVector();
+                if (cube.getX() >= min.getX() && cube.getX() <= max.getX() && cube.getY() >= min.getY()
+                        && cube.getY() <= max.getY() && cube.getZ() >= min.getZ() && cube.getZ() <= max.getZ())
+                    inBox.add(names.get(i));
+                double distance = positions.get(i).subtract(center).norm();
+                if (distance <= radius)
+                    inRadius.add(names.get(i));
+                if (i % 3 == 0 && (nearest == null || distance
+                        < positions.get(names.indexOf(nearest)).subtract(center).norm()))
+                    nearest = names.get(i);
+            }
+            assertEquals(inBox, new HashSet<>(index.getInBox(min, max)));
+            assertEquals(inRadius, new HashSet<>(index.getInRadius(center, radius)));
+            assertEquals(nearest, index.getNearest(center, name -> Integer.parseInt(name.substring(1)) % 3 == 0).get());
+        }
+        assertFalse(index.getNearest(Vector.ZERO, name -> false).isPresent());
+    }
+}
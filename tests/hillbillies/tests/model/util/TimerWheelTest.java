@@ -0,0 +1,89 @@
+package hillbillies.tests.model.util;
+
+import hillbillies.model.util.TimerWheel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the timer wheel.
+ */
+public class TimerWheelTest {
+
+    private static final double RESOLUTION = 0.1;
+
+    private TimerWheel<Integer> wheel;
+    private List<Integer> due;
+
+    @Before
+    public void setUp() throws Exception {
+        wheel = new TimerWheel<>(RESOLUTION);
+        due = new ArrayList<>();
+    }
+
+    @Test
+    public void testAdvance() throws Exception {
+        wheel.schedule(1, 0.55);
+        wheel.schedule(2, 10);
+        assertEquals(2, wheel.size());
+        wheel.advance(0.45, due::add);
+        assertTrue(due.isEmpty());
+        wheel.advance(0.55, due::add);
+        assertEquals(1, due.size());
+        assertEquals(1, (int) due.get(0));
+        assertFalse(wheel.contains(1));
+        assertTrue(wheel.contains(2));
+        wheel.advance(10.05, due::add);
+        assertEquals(2, due.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testPastTime() throws Exception {
+        wheel.advance(5, due::add);
+        wheel.schedule(1, 2);
+        wheel.advance(5, due::add);
+        assertEquals(1, due.size());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        wheel.schedule(1, 1);
+        wheel.schedule(2, 1000);
+        wheel.cancel(1);
+        wheel.schedule(2, 2);
+        assertFalse(wheel.contains(1));
+        wheel.advance(3, due::add);
+        assertEquals(1, due.size());
+        assertEquals(2, (int) due.get(0));
+    }
+
+    @Test
+    public void testRandomTimes() throws Exception {
+        Random random = new Random(3);
+        double[] times = new double[500];
+        for (int i = 0; i < times.length; i++) {
+            // spans all levels and the overflow of the wheel.
+            times[i] = Math.pow(10, random.nextDouble() * 6.5);
+            wheel.schedule(i, times[i]);
+        }
+        double time = 0;
+        while (wheel.size() > 0) {
+            double previous = time;
+            time = time < 1000 ? time + 0.15 : time * 1.5;
+            int before = due.size();
+            wheel.advance(time, due::add);
+            for (int i = before; i < due.size(); i++) {
+                double t = times[due.get(i)];
+                assertTrue(t < time + RESOLUTION);
+                assertTrue(t > previous);
+            }
+        }
+        assertEquals(times.length, due.size());
+    }
+}
@@ -0,0 +1,162 @@
+package hillbillies.tests.util;
+
+import hillbillies.model.util.GridPathFinder;
+import hillbillies.model.util.IntList;
+import hillbillies.part2.internal.map.GameMap;
+import hillbillies.part2.internal.map.GameMapReader;
+
+import java.io.FileNotFoundException;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Helper to load the bundled world files for tests and benchmarks,
+ * and to check pathfinders on random cubic grids.
+ */
+public class WorldMaps {
+
+    /**
+     * A pathfinder between two cubes of a grid.
+     */
+    @FunctionalInterface
+    public interface PathSearch {
+        IntList getPath(int start, int target);
+    }
+
+    private static final String RESOURCE_DIR = "src-provided/resources/";
+
+    /**
+     * Loads the terrain types of the bundled world file with the given name.
+     *
+     * @param   name
+     *          The name of the file, for example "50x50x50.wrld".
+     *
+     * @return  The terrain types, indexed by x, y and z.
+     *
+     * @throws  FileNotFoundException
+     *          If the file can't be found, the working directory must be the project root.
+     */
+    public static int[][][] loadTerrain(String name) throws FileNotFoundException {
+        GameMap map = new GameMapReader().readFromFile(RESOURCE_DIR + name);
+        int[][][] types = new int[map.getNbTilesX()][map.getNbTilesY()][map.getNbTilesZ()];
+        for (int x = 0; x < types.length; x++)
+            for (int y = 0; y < types[0].length; y++)
+                for (int z = 0; z < types[0][0].length; z++)
+                    types[x][y][z] = map.getTypeAt(x, y, z).getByteValue();
+        return types;
+    }
+
+    /**
+     * Returns the 26 neighbours of a cubic grid, where a cube can be entered if it is walkable.
+     *
+     * @param   walkable
+     *          Whether each cube is walkable, indexed by x + y * size + z * size * size.
+     *          Later changes of the array are seen by the neighbours.
+     * @param   size
+     *          The size of the grid in each direction.
+     */
+    public static GridPathFinder.Neighbours gridNeighbours(boolean[] walkable, int size) {
+        return (index, result) -> {
+            int x = index % size, y = (index / size) % size, z = index / (size * size);
+            int n = 0;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        int nx = x + dx, ny = y + dy, nz = z + dz;
+                        int next = nx + ny * size + nz * size * size;
+                        if ((dx != 0 || dy != 0 || dz != 0) && nx >= 0 && nx < size && ny >= 0 && ny < size
+                                && nz >= 0 && nz < size && walkable[next])
+                            result[n++] = next;
+                    }
+                }
+            }
+            return n;
+        };
+    }
+
+    /**
+     * Asserts that the path goes from start to target, each cube neighbouring the previous one.
+     */
+    public static void assertValidPath(IntList path, int start, int target, GridPathFinder.Neighbours neighbours) {
+        assertNotNull(path);
+        assertEquals(start, path.get(0));
+        assertEquals(target, path.get(path.size() - 1));
+        int[] buffer = new int[26];
+        for (int i = 1; i < path.size(); i++) {
+            int n = neighbours.getNeighbours(path.get(i - 1), buffer);
+            boolean found = false;
+            for (int j = 0; j < n; j++)
+                found |= buffer[j] == path.get(i);
+            assertTrue(found);
+        }
+    }
+
+    /**
+     * Returns the length of the path through a cubic grid of the given size.
+     */
+    public static double cost(IntList path, int size) {
+        double cost = 0;
+        for (int i = 1; i < path.size(); i++) {
+            int a = path.get(i - 1), b = path.get(i);
+            cost += Math.sqrt(Math.abs(a % size - b % size) + Math.abs((a / size) % size - (b / size) % size)
+                    + Math.abs(a / (size * size) - b / (size * size)));
+        }
+        return cost;
+    }
+
+    /**
+     * Compares a pathfinder with grid A* on random maps of a cubic grid.
+     *
+     * @param   random
+     *          The source of the maps and the searched pairs.
+     * @param   walkable
+     *          The walkability of the grid that both pathfinders search, it is filled with the random maps.
+     * @param   size
+     *          The size of the grid in each direction.
+     * @param   nbMaps
+     *          The number of maps to generate.
+     * @param   nbSearches
+     *          The number of searches on each map.
+     * @param   changed
+     *          Called with each cube whose walkability changes.
+     * @param   expected
+     *          The grid A* pathfinder over the walkable cubes.
+     * @param   actual
+     *          The pathfinder to check.
+     * @param   shortest
+     *          Whether the checked paths must be as short as the grid A* paths.
+     */
+    public static void assertRandomMaps(Random random, boolean[] walkable, int size, int nbMaps, int nbSearches,
+                                        IntConsumer changed, GridPathFinder expected, PathSearch actual,
+                                        boolean shortest) {
+        GridPathFinder.Neighbours neighbours = gridNeighbours(walkable, size);
+        for (int map = 0; map < nbMaps; map++) {
+            int density = random.nextInt(45);
+            for (int i = 0; i < walkable.length; i++)
+                setWalkable(walkable, i, random.nextInt(100) >= density, changed);
+            for (int search = 0; search < nbSearches; search++) {
+                int start = random.nextInt(walkable.length), target = random.nextInt(walkable.length);
+                setWalkable(walkable, start, true, changed);
+                setWalkable(walkable, target, true, changed);
+                IntList expectedPath = expected.getPath(start, target);
+                IntList path = actual.getPath(start, target);
+                if (expectedPath == null) {
+                    assertNull(path);
+                } else {
+                    assertValidPath(path, start, target, neighbours);
+                    if (shortest)
+                        assertEquals(cost(expectedPath, size), cost(path, size), 1e-3);
+                }
+            }
+        }
+    }
+
+    private static void setWalkable(boolean[] walkable, int index, boolean value, IntConsumer changed) {
+        if (walkable[index] != value) {
+            walkable[index] = value;
+            changed.accept(index);
+        }
+    }
+}